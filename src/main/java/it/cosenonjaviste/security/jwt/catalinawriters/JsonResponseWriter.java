@@ -1,26 +1,26 @@
 package it.cosenonjaviste.security.jwt.catalinawriters;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.apache.catalina.connector.Response;
 
 import java.io.IOException;
 
 /**
  * JSON response writer, based on Jackson json serializer
- * 
+ *
  * @author acomo
  *
  */
-class JsonResponseWriter extends ResponseWriter {
+class JsonResponseWriter extends SerializingResponseWriter {
+
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+	JsonResponseWriter() {
+		super(APPLICATION_JSON + ";charset=UTF-8");
+	}
 
 	@Override
-	public void write(Response response, int statusCode, Object body)
-			throws IOException {
-		
-		response.setStatus(statusCode);
-		response.setContentType(APPLICATION_JSON);
-		ObjectMapper objectMapper = new ObjectMapper();
-		objectMapper.writeValue(response.getWriter(), body);
+	byte[] serialize(Object body) throws IOException {
+		return OBJECT_MAPPER.writeValueAsBytes(body);
 	}
 
 }
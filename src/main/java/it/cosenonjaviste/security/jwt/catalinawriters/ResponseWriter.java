@@ -16,6 +16,12 @@ public abstract class ResponseWriter {
 	static final String APPLICATION_XML = "application/xml";
 	
 	static final String APPLICATION_JSON = "application/json";
+
+	private static final ResponseWriter JSON = new JsonResponseWriter();
+
+	private static final ResponseWriter XML = new XmlResponseWriter();
+
+	private static final ResponseWriter HTML = new HtmlResponseWriter();
 	
 	/**
 	 * Create a new {@link ResponseWriter} instance based on provided mimetype.
@@ -27,17 +33,19 @@ public abstract class ResponseWriter {
 	 * <li>text/html is default</li>
 	 * </ul>
 	 * 
+	 * Writers are stateless or thread-safe: the same instance is returned for each mimetype.
+	 * 
 	 * @param mimeType accepted mimetype from client
-	 * @return a new {@link ResponseWriter} instance
+	 * @return a shared {@link ResponseWriter} instance
 	 */
 	public static ResponseWriter get(String mimeType) {
 		String nullSafeMimeType = mimeType != null ? mimeType : "";
 		if (nullSafeMimeType.contains(APPLICATION_JSON)) {
-			return new JsonResponseWriter();
+			return JSON;
 		} else if (nullSafeMimeType.contains(APPLICATION_XML)) {
-			return new XmlResponseWriter();
+			return XML;
 		} else {
-			return new HtmlResponseWriter();
+			return HTML;
 		}
 	}
 	
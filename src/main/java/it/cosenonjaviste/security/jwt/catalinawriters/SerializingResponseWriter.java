@@ -0,0 +1,60 @@
+package it.cosenonjaviste.security.jwt.catalinawriters;
+
+import it.cosenonjaviste.security.jwt.model.AuthErrorResponse;
+import org.apache.catalina.connector.Response;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Template class for writers serializing response body to bytes.
+ * <br>
+ * {@link AuthErrorResponse} bodies with one of {@link AuthErrorResponse#CONSTANT_MESSAGES} are serialized on first
+ * use and cached: other messages carry exception text, dates or token values, so they are serialized each time.
+ * Bodies are written to the output stream with their <tt>Content-Length</tt>.
+ * <br>
+ * Instances are thread-safe and shared.
+ */
+abstract class SerializingResponseWriter extends ResponseWriter {
+
+	private final String contentType;
+
+	private final Map<String, byte[]> errorBodies = new ConcurrentHashMap<>();
+
+	SerializingResponseWriter(String contentType) {
+		this.contentType = contentType;
+	}
+
+	@Override
+	public void write(Response response, int statusCode, Object body) throws IOException {
+		byte[] bytes = body instanceof AuthErrorResponse ? errorBody((AuthErrorResponse) body) : serialize(body);
+
+		response.setStatus(statusCode);
+		response.setContentType(contentType);
+		response.setContentLength(bytes.length);
+		response.getOutputStream().write(bytes);
+	}
+
+	byte[] errorBody(AuthErrorResponse body) throws IOException {
+		String message = body.getMessage();
+		if (message == null || !AuthErrorResponse.CONSTANT_MESSAGES.contains(message)) {
+			return serialize(body);
+		}
+		byte[] bytes = errorBodies.get(message);
+		if (bytes == null) {
+			bytes = serialize(body);
+			errorBodies.putIfAbsent(message, bytes);
+		}
+		return bytes;
+	}
+
+	/**
+	 * @param body response body
+	 *
+	 * @return body serialized in UTF-8
+	 *
+	 * @throws IOException if body cannot be serialized
+	 */
+	abstract byte[] serialize(Object body) throws IOException;
+}
@@ -1,26 +1,51 @@
 package it.cosenonjaviste.security.jwt.catalinawriters;
 
-import org.apache.catalina.connector.Response;
-
-import javax.xml.bind.JAXB;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * XML response writer, based on JAXB serializer
- * 
+ * XML response writer, based on JAXB serializer.
+ * <br>
+ * {@link JAXBContext} instances are expensive and thread-safe: they are created once per body type and shared,
+ * while a new lightweight {@link Marshaller} is created per body
+ *
  * @author acomo
  *
  */
-class XmlResponseWriter extends ResponseWriter {
+class XmlResponseWriter extends SerializingResponseWriter {
+
+	private static final Map<Class<?>, JAXBContext> CONTEXTS = new ConcurrentHashMap<>();
+
+	XmlResponseWriter() {
+		super(APPLICATION_XML + ";charset=UTF-8");
+	}
 
 	@Override
-	public void write(Response response, int statusCode, Object body)
-			throws IOException {
-		
-		response.setStatus(statusCode);
-		response.setContentType(APPLICATION_XML);
-		JAXB.marshal(body, response.getWriter());
-		
+	byte[] serialize(Object body) throws IOException {
+		try {
+			Marshaller marshaller = context(body.getClass()).createMarshaller();
+			marshaller.setProperty(Marshaller.JAXB_ENCODING, "UTF-8");
+			marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+			ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+			marshaller.marshal(body, out);
+			return out.toByteArray();
+		} catch (JAXBException e) {
+			throw new IOException(e.getMessage(), e);
+		}
+	}
+
+	private static JAXBContext context(Class<?> type) throws JAXBException {
+		JAXBContext context = CONTEXTS.get(type);
+		if (context == null) {
+			context = JAXBContext.newInstance(type);
+			CONTEXTS.putIfAbsent(type, context);
+		}
+		return context;
 	}
 
 }
@@ -0,0 +1,23 @@
+package it.cosenonjaviste.security.jwt.exceptions;
+
+import com.auth0.jwt.exceptions.JWTVerificationException;
+
+/**
+ * Thrown when a token has already been rejected and its failure is still cached: message is the same
+ * of the original failure, which is the cause of this exception.
+ * <br>
+ * Stack trace is not filled, since it would only point to the cache lookup.
+ */
+public class RejectedTokenException extends JWTVerificationException {
+
+    private static final long serialVersionUID = 1L;
+
+    public RejectedTokenException(JWTVerificationException cause) {
+        super(cause.getMessage(), cause);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -3,11 +3,29 @@ package it.cosenonjaviste.security.jwt.model;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlRootElement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 @XmlRootElement(name = "AuthError")
 @XmlAccessorType(XmlAccessType.FIELD)
 public class AuthErrorResponse {
 
+	/**
+	 * Message of requests without token
+	 */
+	public static final String LOGIN_REQUIRED = "Please login first";
+
+	/**
+	 * Message of requests without <tt>Authorization</tt> bearer token
+	 */
+	public static final String TOKEN_NOT_PROVIDED = "Authorization token not provided";
+
+	/**
+	 * Messages not depending on request or token: responses with these messages can be serialized once
+	 */
+	public static final List<String> CONSTANT_MESSAGES = Collections.unmodifiableList(Arrays.asList(LOGIN_REQUIRED, TOKEN_NOT_PROVIDED));
+
 	private String message;
 
 	public AuthErrorResponse() {
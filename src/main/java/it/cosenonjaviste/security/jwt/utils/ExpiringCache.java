@@ -0,0 +1,105 @@
+package it.cosenonjaviste.security.jwt.utils;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded, thread-safe cache whose entries expire at an absolute instant (epoch millis).
+ * <br>
+ * Reads never lock. When the cache is full, expired entries are purged first and, if there is
+ * still no room, a batch of arbitrary entries is evicted: this keeps memory bounded without
+ * paying the bookkeeping cost of a strict LRU on every hit.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class ExpiringCache<K, V> {
+
+    private final ConcurrentHashMap<K, Entry<V>> entries;
+
+    private final int maxSize;
+
+    private final int evictionBatchSize;
+
+    /**
+     * @param maxSize maximum number of entries, must be positive
+     */
+    public ExpiringCache(int maxSize) {
+        Preconditions.checkArgument(maxSize > 0, "Cache size must be greater than 0");
+        this.maxSize = maxSize;
+        this.evictionBatchSize = Math.max(1, maxSize / 10);
+        this.entries = new ConcurrentHashMap<>(Math.min(maxSize, 1024));
+    }
+
+    /**
+     * @param key cache key
+     *
+     * @return cached value or null if missing or expired
+     */
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired(System.currentTimeMillis())) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.value;
+    }
+
+    /**
+     * Store a value until <tt>expiresAt</tt>. Values already expired are ignored.
+     *
+     * @param key cache key
+     * @param value value to cache
+     * @param expiresAt expiration instant in epoch millis
+     */
+    public void put(K key, V value, long expiresAt) {
+        long now = System.currentTimeMillis();
+        if (expiresAt <= now) {
+            return;
+        }
+        if (entries.size() >= maxSize && !entries.containsKey(key)) {
+            makeRoom(now);
+        }
+        entries.put(key, new Entry<>(value, expiresAt));
+    }
+
+    public void remove(K key) {
+        entries.remove(key);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void makeRoom(long now) {
+        entries.values().removeIf(entry -> entry.isExpired(now));
+        Iterator<K> keys = entries.keySet().iterator();
+        while (entries.size() > maxSize - evictionBatchSize && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    private static final class Entry<V> {
+
+        private final V value;
+
+        private final long expiresAt;
+
+        private Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+}
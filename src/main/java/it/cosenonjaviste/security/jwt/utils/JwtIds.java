@@ -0,0 +1,52 @@
+package it.cosenonjaviste.security.jwt.utils;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.UUID;
+
+/**
+ * Generator of <em>jti</em> values: random (version 4) UUIDs, as {@link UUID#randomUUID()}.
+ * <br>
+ * {@link UUID#randomUUID()} draws from a single {@link SecureRandom} shared by the whole JVM, a point of contention
+ * when many threads mint tokens. Here each thread owns its cryptographically strong generator, seeded once.
+ */
+final class JwtIds {
+
+    private static final ThreadLocal<SecureRandom> RANDOM = ThreadLocal.withInitial(JwtIds::newSecureRandom);
+
+    private JwtIds() {
+        // prevent instance
+    }
+
+    /**
+     * @return a new random UUID as string
+     */
+    static String next() {
+        byte[] bytes = new byte[16];
+        RANDOM.get().nextBytes(bytes);
+        bytes[6] = (byte) ((bytes[6] & 0x0f) | 0x40);
+        bytes[8] = (byte) ((bytes[8] & 0x3f) | 0x80);
+        long msb = 0;
+        long lsb = 0;
+        for (int i = 0; i < 8; i++) {
+            msb = (msb << 8) | (bytes[i] & 0xff);
+            lsb = (lsb << 8) | (bytes[i + 8] & 0xff);
+        }
+        return new UUID(msb, lsb).toString();
+    }
+
+    /**
+     * Prefer generators keeping their state per instance (DRBG since Java 9, SHA1PRNG before)
+     * over the default one, that on Unix reads from a process-wide source
+     */
+    private static SecureRandom newSecureRandom() {
+        for (String algorithm : new String[]{"DRBG", "SHA1PRNG"}) {
+            try {
+                return SecureRandom.getInstance(algorithm);
+            } catch (NoSuchAlgorithmException e) {
+                // try next one
+            }
+        }
+        return new SecureRandom();
+    }
+}
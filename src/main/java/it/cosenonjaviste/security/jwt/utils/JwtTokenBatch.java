@@ -0,0 +1,176 @@
+package it.cosenonjaviste.security.jwt.utils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+/**
+ * Bulk issuance of tokens from a {@link JwtTokenTemplate}, e.g. for load tests or service accounts provisioning.
+ * <br>
+ * Subjects are split in chunks: each chunk is signed in parallel on a {@link ForkJoinPool}, while the previous one
+ * is written out. Tokens are written one per line, in the same order of subjects, so memory use is bounded by
+ * two chunks whatever the number of tokens.
+ */
+public final class JwtTokenBatch {
+
+    private static final int THRESHOLD = 64;
+
+    private final JwtTokenTemplate template;
+
+    private final ForkJoinPool pool;
+
+    private final int chunkSize;
+
+    private JwtTokenBatch(JwtTokenTemplate template, ForkJoinPool pool, int chunkSize) {
+        this.template = template;
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @param template template of tokens
+     *
+     * @return a new {@link JwtTokenBatch} running on common {@link ForkJoinPool}, with chunks of 4096 tokens
+     */
+    public static JwtTokenBatch create(JwtTokenTemplate template) {
+        return create(template, ForkJoinPool.commonPool(), 4096);
+    }
+
+    /**
+     * @param template template of tokens
+     * @param pool pool signing tokens
+     * @param chunkSize tokens signed before being written out
+     *
+     * @return a new {@link JwtTokenBatch}
+     */
+    public static JwtTokenBatch create(JwtTokenTemplate template, ForkJoinPool pool, int chunkSize) {
+        Preconditions.checkArgument(template != null && pool != null, "Template and pool cannot be null");
+        Preconditions.checkArgument(chunkSize > 0, "Chunk size must be positive");
+        return new JwtTokenBatch(template, pool, chunkSize);
+    }
+
+    /**
+     * Mint a token for each subject, writing them one per line
+     *
+     * @param subjects subjects of tokens, accessed by index: use a random access {@link List}
+     * @param userId user id of a subject
+     * @param roles roles of a subject
+     * @param out destination of tokens
+     * @param <T> subject type
+     *
+     * @return number of written tokens
+     *
+     * @throws IOException if <tt>out</tt> cannot be written
+     */
+    public <T> long mint(List<T> subjects, Function<? super T, String> userId,
+                         Function<? super T, ? extends Collection<String>> roles, Appendable out) throws IOException {
+        int size = subjects.size();
+        MintAction<T> next = size > 0 ? submit(subjects, userId, roles, 0) : null;
+        try {
+            for (int from = 0; from < size; from += chunkSize) {
+                next.join();
+                String[] tokens = next.tokens;
+                next = from + chunkSize < size ? submit(subjects, userId, roles, from + chunkSize) : null;
+                for (String token : tokens) {
+                    out.append(token).append('\n');
+                }
+            }
+        } finally {
+            // tokens of a chunk still signing would never be written
+            if (next != null) {
+                next.cancel(false);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * See {@link #mint(List, Function, Function, Appendable)}. Tokens are written in US-ASCII, <tt>out</tt> is
+     * flushed but not closed
+     *
+     * @param subjects subjects of tokens, accessed by index: use a random access {@link List}
+     * @param userId user id of a subject
+     * @param roles roles of a subject
+     * @param out destination of tokens
+     * @param <T> subject type
+     *
+     * @return number of written tokens
+     *
+     * @throws IOException if <tt>out</tt> cannot be written
+     */
+    public <T> long mint(List<T> subjects, Function<? super T, String> userId,
+                         Function<? super T, ? extends Collection<String>> roles, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.US_ASCII));
+        long count = mint(subjects, userId, roles, writer);
+        writer.flush();
+        return count;
+    }
+
+    private <T> MintAction<T> submit(List<T> subjects, Function<? super T, String> userId,
+                                     Function<? super T, ? extends Collection<String>> roles, int from) {
+        String[] tokens = new String[Math.min(chunkSize, subjects.size() - from)];
+        MintAction<T> action = new MintAction<>(null, subjects, userId, roles, from, tokens, 0, tokens.length);
+        pool.execute(action);
+        return action;
+    }
+
+    /**
+     * Mint tokens <tt>[start, end)</tt> of a chunk, splitting in halves down to {@link #THRESHOLD} tokens.
+     * Halves stop minting once the chunk is cancelled
+     */
+    private final class MintAction<T> extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final MintAction<T> chunk;
+
+        private final List<T> subjects;
+
+        private final Function<? super T, String> userId;
+
+        private final Function<? super T, ? extends Collection<String>> roles;
+
+        private final int offset;
+
+        private final String[] tokens;
+
+        private final int start;
+
+        private final int end;
+
+        private MintAction(MintAction<T> chunk, List<T> subjects, Function<? super T, String> userId,
+                           Function<? super T, ? extends Collection<String>> roles,
+                           int offset, String[] tokens, int start, int end) {
+            this.chunk = chunk != null ? chunk : this;
+            this.subjects = subjects;
+            this.userId = userId;
+            this.roles = roles;
+            this.offset = offset;
+            this.tokens = tokens;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= THRESHOLD) {
+                for (int i = start; i < end && !chunk.isCancelled(); i++) {
+                    T subject = subjects.get(offset + i);
+                    tokens[i] = template.mint(userId.apply(subject), roles.apply(subject));
+                }
+            } else {
+                int middle = (start + end) >>> 1;
+                invokeAll(new MintAction<>(chunk, subjects, userId, roles, offset, tokens, start, middle),
+                        new MintAction<>(chunk, subjects, userId, roles, offset, tokens, middle, end));
+            }
+        }
+    }
+}
@@ -20,6 +20,9 @@ import static com.auth0.jwt.impl.PublicClaims.*;
  * 
  * <tt>userId</tt> and <tt>roles</tt> values are mandatory.
  * 
+ * To sign with a key pair of the keystore used by <tt>RsaJwtTokenValve</tt>, create the algorithm with
+ * {@link it.cosenonjaviste.security.jwt.utils.verifiers.RsaKeystoreAlgorithm}: the <em>kid</em> header is the key pairs alias.
+ * 
  * @author acomo
  *
  */
@@ -145,6 +148,22 @@ public class JwtTokenBuilder {
 	public static JwtTokenBuilder from(String token, String secret) {
 		return from(token, secret, JwtConstants.USER_ID, JwtConstants.ROLES);
 	}
+
+	/**
+	 * Renews a verified token: same result of <tt>from(jwt).build()</tt>, without rebuilding its claims.
+	 * <br >
+	 * Token <strong>must</strong> contains "<em>iat</em>" param. Original header and claims are kept byte by byte,
+	 * only "<em>iat</em>", "<em>exp</em>", "<em>nbf</em>" and "<em>jti</em>" are replaced as described in {@link #from(JwtAdapter)}
+	 *
+	 * @param jwt a {@link JwtAdapter} instance, whose algorithm is able to sign
+	 *
+	 * @return renewed token
+	 *
+	 * @throws IllegalStateException if token has no "<em>iat</em>" param
+	 */
+	public static String renew(JwtAdapter jwt) {
+		return TokenResigner.renew(jwt.getAlgorithm(), jwt.getDecodedJWT(), System.currentTimeMillis());
+	}
 	
 	private static void restoreInternalStatus(JwtTokenBuilder builder, DecodedJWT decodedJWT) {
 		Map<String, Claim> verifiedClaims = new HashMap<>(decodedJWT.getClaims());
@@ -0,0 +1,324 @@
+package it.cosenonjaviste.security.jwt.utils;
+
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTCreationException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static com.auth0.jwt.impl.PublicClaims.*;
+
+/**
+ * Immutable and thread-safe template for minting many tokens with the same header and static claims.
+ * <br>
+ * Header, algorithm and static claims (issuer, audience, any other fixed claim) are serialized once, when the
+ * template is built. Each {@link #mint(String, Collection, Map)} call serializes only <tt>userId</tt>, <tt>roles</tt>,
+ * per-token claims and time claims, then signs. No lock is taken: a single template can be shared by all threads,
+ * as long as its {@link Algorithm} is thread-safe (java-jwt algorithms are).
+ * <br>
+ * Tokens carry the same claims of {@link JwtTokenBuilder}: <em>iat</em> is always set, <em>exp</em>, <em>nbf</em>
+ * and <em>jti</em> are optional.
+ */
+public final class JwtTokenTemplate {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private final Algorithm algorithm;
+
+    private final byte[] header;
+
+    private final String staticClaims;
+
+    private final Set<String> reservedClaims;
+
+    private final String userIdClaim;
+
+    private final String rolesClaim;
+
+    private final Integer expirySeconds;
+
+    private final Integer notValidBeforeLeeway;
+
+    private final boolean jwtId;
+
+    private JwtTokenTemplate(Builder builder) {
+        this.algorithm = builder.algorithm;
+        this.userIdClaim = builder.userIdClaim;
+        this.rolesClaim = builder.rolesClaim;
+        this.expirySeconds = builder.expirySeconds;
+        this.notValidBeforeLeeway = builder.notValidBeforeLeeway;
+        this.jwtId = builder.jwtId;
+
+        Map<String, Object> headerClaims = new LinkedHashMap<>();
+        headerClaims.put(ALGORITHM, algorithm.getName());
+        headerClaims.put(TYPE, "JWT");
+        if (algorithm.getSigningKeyId() != null) {
+            headerClaims.put(KEY_ID, algorithm.getSigningKeyId());
+        }
+        this.header = ENCODER.encode(toJson(headerClaims).getBytes(StandardCharsets.UTF_8));
+
+        String json = toJson(builder.claims);
+        this.staticClaims = json.length() > 2 ? "," + json.substring(1, json.length() - 1) : "";
+
+        Set<String> reserved = new HashSet<>(builder.claims.keySet());
+        reserved.addAll(Arrays.asList(userIdClaim, rolesClaim, ISSUED_AT, EXPIRES_AT, NOT_BEFORE, JWT_ID));
+        this.reservedClaims = Collections.unmodifiableSet(reserved);
+    }
+
+    /**
+     * @param algorithm signing algorithm
+     *
+     * @return a new {@link Builder}
+     */
+    public static Builder builder(Algorithm algorithm) {
+        return new Builder(algorithm);
+    }
+
+    /**
+     * See {@link #mint(String, Collection, Map)}
+     *
+     * @param userId realm username
+     * @param roles user roles
+     *
+     * @return a new signed token
+     */
+    public String mint(String userId, Collection<String> roles) {
+        return mint(userId, roles, Collections.emptyMap());
+    }
+
+    /**
+     * Create a new signed token
+     *
+     * @param userId realm username
+     * @param roles user roles
+     * @param claims per-token claims, may be empty
+     *
+     * @return a new signed token
+     *
+     * @throws IllegalArgumentException if <tt>userId</tt> or <tt>roles</tt> are null, or a claim overrides
+     * a static, user, role or time claim
+     * @throws JWTCreationException if the token cannot be signed
+     */
+    public String mint(String userId, Collection<String> roles, Map<String, ?> claims) {
+        Preconditions.checkArgument(userId != null && roles != null, userIdClaim + " and " + rolesClaim + " claims must be added!");
+        for (String name : claims.keySet()) {
+            Preconditions.checkArgument(!reservedClaims.contains(name), "Claim '" + name + "' cannot be set per token");
+        }
+        long now = System.currentTimeMillis() / 1000;
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeStringField(userIdClaim, userId);
+            generator.writeArrayFieldStart(rolesClaim);
+            for (String role : roles) {
+                generator.writeString(role);
+            }
+            generator.writeEndArray();
+            for (Map.Entry<String, ?> entry : claims.entrySet()) {
+                generator.writeFieldName(entry.getKey());
+                writeValue(generator, entry.getValue());
+            }
+            generator.writeNumberField(ISSUED_AT, now);
+            if (expirySeconds != null) {
+                generator.writeNumberField(EXPIRES_AT, now + expirySeconds);
+            }
+            if (notValidBeforeLeeway != null) {
+                generator.writeNumberField(NOT_BEFORE, now - notValidBeforeLeeway);
+            }
+            if (jwtId) {
+                generator.writeStringField(JWT_ID, JwtIds.next());
+            }
+            generator.writeRaw(staticClaims);
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new JWTCreationException("Unable to serialize token payload", e);
+        }
+
+        byte[] payload = ENCODER.encode(out.toByteArray());
+        byte[] signature = algorithm.sign(header, payload);
+        return new StringBuilder(header.length + payload.length + signature.length * 4 / 3 + 4)
+                .append(new String(header, StandardCharsets.US_ASCII))
+                .append('.')
+                .append(new String(payload, StandardCharsets.US_ASCII))
+                .append('.')
+                .append(ENCODER.encodeToString(signature))
+                .toString();
+    }
+
+    private static String toJson(Map<String, ?> values) {
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(writer)) {
+            generator.writeStartObject();
+            for (Map.Entry<String, ?> entry : values.entrySet()) {
+                generator.writeFieldName(entry.getKey());
+                writeValue(generator, entry.getValue());
+            }
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new JWTCreationException("Unable to serialize token claims", e);
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Write claim values with the same types supported by {@link JwtTokenBuilder#claimEntry(String, Object)}.
+     * Dates are written in seconds since epoch, collections as arrays
+     */
+    private static void writeValue(JsonGenerator generator, Object value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else if (value instanceof String) {
+            generator.writeString((String) value);
+        } else if (value instanceof Integer || value instanceof Long) {
+            generator.writeNumber(((Number) value).longValue());
+        } else if (value instanceof Double) {
+            generator.writeNumber((Double) value);
+        } else if (value instanceof Boolean) {
+            generator.writeBoolean((Boolean) value);
+        } else if (value instanceof Date) {
+            generator.writeNumber(((Date) value).getTime() / 1000);
+        } else if (value instanceof Object[] || value instanceof Collection) {
+            generator.writeStartArray();
+            for (Object element : value instanceof Collection ? (Collection<?>) value : Arrays.asList((Object[]) value)) {
+                writeValue(generator, element);
+            }
+            generator.writeEndArray();
+        } else {
+            throw new IllegalArgumentException("Claim value of type " + value.getClass().getName() + " not supported");
+        }
+    }
+
+    /**
+     * Builder of {@link JwtTokenTemplate}: not thread-safe, unlike the template it builds
+     */
+    public static final class Builder {
+
+        private final Algorithm algorithm;
+
+        private final Map<String, Object> claims = new LinkedHashMap<>();
+
+        private String userIdClaim = JwtConstants.USER_ID;
+
+        private String rolesClaim = JwtConstants.ROLES;
+
+        private Integer expirySeconds;
+
+        private Integer notValidBeforeLeeway;
+
+        private boolean jwtId;
+
+        private Builder(Algorithm algorithm) {
+            Preconditions.checkArgument(algorithm != null, "Algorithm cannot be null");
+            this.algorithm = algorithm;
+        }
+
+        /**
+         * @param userIdClaim custom user id claim
+         *
+         * @return this {@link Builder}
+         */
+        public Builder userIdClaim(String userIdClaim) {
+            this.userIdClaim = userIdClaim != null ? userIdClaim : JwtConstants.USER_ID;
+            return this;
+        }
+
+        /**
+         * @param rolesClaim custom roles claim
+         *
+         * @return this {@link Builder}
+         */
+        public Builder rolesClaim(String rolesClaim) {
+            this.rolesClaim = rolesClaim != null ? rolesClaim : JwtConstants.ROLES;
+            return this;
+        }
+
+        /**
+         * @param issuer <em>iss</em> claim of every token
+         *
+         * @return this {@link Builder}
+         */
+        public Builder issuer(String issuer) {
+            return claimEntry(ISSUER, issuer);
+        }
+
+        /**
+         * @param audience <em>aud</em> claim of every token
+         *
+         * @return this {@link Builder}
+         */
+        public Builder audience(String... audience) {
+            return claimEntry(AUDIENCE, audience.length == 1 ? audience[0] : audience.clone());
+        }
+
+        /**
+         * Add a static claim, shared by every token
+         *
+         * @param key key of new claim
+         * @param value value of new claim
+         *
+         * @return this {@link Builder}
+         */
+        public Builder claimEntry(String key, Object value) {
+            claims.put(key, value);
+            return this;
+        }
+
+        /**
+         * @param seconds tokens expire within seconds since their creation
+         *
+         * @return this {@link Builder}
+         */
+        public Builder expirySecs(int seconds) {
+            this.expirySeconds = seconds;
+            return this;
+        }
+
+        /**
+         * @param notValidBeforeLeeway <em>nbf</em> claim of every token, in seconds before its creation
+         *
+         * @return this {@link Builder}
+         */
+        public Builder notValidBeforeLeeway(int notValidBeforeLeeway) {
+            this.notValidBeforeLeeway = notValidBeforeLeeway;
+            return this;
+        }
+
+        /**
+         * @param jwtId true to add a random <em>jti</em> claim to every token
+         *
+         * @return this {@link Builder}
+         */
+        public Builder generateJwtId(boolean jwtId) {
+            this.jwtId = jwtId;
+            return this;
+        }
+
+        /**
+         * @return a new immutable {@link JwtTokenTemplate}
+         *
+         * @throws IllegalArgumentException if a static claim value is not supported or overrides a user, role or time claim
+         */
+        public JwtTokenTemplate build() {
+            for (String name : Arrays.asList(userIdClaim, rolesClaim, ISSUED_AT, EXPIRES_AT, NOT_BEFORE, JWT_ID)) {
+                Preconditions.checkArgument(!claims.containsKey(name), "Claim '" + name + "' cannot be static");
+            }
+            return new JwtTokenTemplate(this);
+        }
+    }
+}
@@ -4,7 +4,6 @@ import com.auth0.jwt.JWTCreator;
 
 import java.util.Calendar;
 import java.util.Date;
-import java.util.UUID;
 
 /**
  * Internal Option class adapter to maintain signatures with previous version of java-jwt library
@@ -24,7 +23,7 @@ class OptionsAdapter {
 
     void setJwtId(Boolean jwtId) {
         if (jwtId) {
-            jwtBuilder.withJWTId(UUID.randomUUID().toString());
+            jwtBuilder.withJWTId(JwtIds.next());
         }
     }
 
@@ -0,0 +1,92 @@
+package it.cosenonjaviste.security.jwt.utils;
+
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTCreationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+import static com.auth0.jwt.impl.PublicClaims.*;
+
+/**
+ * Renew a verified token by patching its time claims, without converting its claims back and forth.
+ * <br>
+ * The original header segment is kept as is. The payload is streamed token by token: <em>iat</em>, <em>exp</em>,
+ * <em>nbf</em> and <em>jti</em> are replaced in place, every other claim (arrays, objects, numbers) is copied
+ * verbatim. The new signing input is then signed with the token {@link Algorithm}.
+ */
+final class TokenResigner {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private TokenResigner() {
+        // prevent instance
+    }
+
+    /**
+     * @param algorithm algorithm able to sign, usually the one that verified <tt>decodedJWT</tt>
+     * @param decodedJWT verified token, with <em>iat</em> claim
+     * @param now renewal time in millis
+     *
+     * @throws IllegalStateException if <em>iat</em> is missing
+     * @throws JWTCreationException if the token cannot be signed
+     *
+     * @return renewed token
+     */
+    static String renew(Algorithm algorithm, DecodedJWT decodedJWT, long now) {
+        Date issuedAt = decodedJWT.getIssuedAt();
+        Preconditions.checkState(issuedAt != null, "Missing 'iat' value. Unable to restore builder status");
+        long shift = now / 1000 - issuedAt.getTime() / 1000;
+
+        String header = decodedJWT.getHeader();
+        String payload = ENCODER.encodeToString(patch(DECODER.decode(decodedJWT.getPayload()), shift));
+        byte[] signature = algorithm.sign(header.getBytes(StandardCharsets.UTF_8), payload.getBytes(StandardCharsets.UTF_8));
+        return header + '.' + payload + '.' + ENCODER.encodeToString(signature);
+    }
+
+    /**
+     * @return <tt>json</tt> with time claims moved forward by <tt>shift</tt> seconds and a new <em>jti</em>
+     */
+    private static byte[] patch(byte[] json, long shift) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length + 16);
+        try (JsonParser parser = JSON_FACTORY.createParser(json);
+             JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Payload is not a JSON object");
+            }
+            generator.writeStartObject();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                parser.nextToken();
+                generator.writeFieldName(name);
+                if (isTimeClaim(name) && parser.currentToken().isNumeric()) {
+                    generator.writeNumber(parser.getLongValue() + shift);
+                } else if (JWT_ID.equals(name)) {
+                    generator.writeString(JwtIds.next());
+                } else {
+                    generator.copyCurrentStructure(parser);
+                }
+            }
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new JWTCreationException("Unable to renew token payload", e);
+        }
+        return out.toByteArray();
+    }
+
+    private static boolean isTimeClaim(String name) {
+        return ISSUED_AT.equals(name) || EXPIRES_AT.equals(name) || NOT_BEFORE.equals(name);
+    }
+}
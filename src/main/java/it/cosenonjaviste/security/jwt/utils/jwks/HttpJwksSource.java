@@ -0,0 +1,182 @@
+package it.cosenonjaviste.security.jwt.utils.jwks;
+
+import com.auth0.jwk.Jwk;
+import com.auth0.jwk.SigningKeyNotFoundException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.cosenonjaviste.security.jwt.utils.Preconditions;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link JwksSource} downloading a JWKS over HTTP, with the same messages of {@link com.auth0.jwk.UrlJwkProvider}.
+ * <br>
+ * Requests are conditional: the <em>ETag</em> and <em>Last-Modified</em> values of the last response are sent back
+ * and, on a <em>304 Not Modified</em>, the previous list of keys is returned as is, so that keys are not parsed again.
+ * Connections are kept alive by {@link HttpURLConnection} between requests, and bounded by connect and read timeouts.
+ * <br>
+ * With {@link #withMaxAge(long, long, TimeUnit)}, the <em>Cache-Control: max-age</em> of responses is used as ttl.
+ */
+public class HttpJwksSource implements JwksSource {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final TypeReference<Map<String, Object>> JWKS_TYPE = new TypeReference<Map<String, Object>>() {
+    };
+
+    private final URL url;
+
+    private final int connectTimeout;
+
+    private final int readTimeout;
+
+    private boolean honorMaxAge;
+
+    private long minTtlMillis;
+
+    private long maxTtlMillis;
+
+    private List<Jwk> jwks;
+
+    private String etag;
+
+    private String lastModified;
+
+    private long maxAgeMillis = -1;
+
+    /**
+     * @param url JWKS uri
+     * @param connectTimeout connect timeout in millis
+     * @param readTimeout read timeout in millis
+     */
+    public HttpJwksSource(URL url, int connectTimeout, int readTimeout) {
+        Preconditions.checkArgument(connectTimeout >= 0 && readTimeout >= 0, "Timeouts cannot be negative");
+        this.url = url;
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+    }
+
+    /**
+     * Use <em>max-age</em> of responses as ttl, bounded by <tt>minTtl</tt> and <tt>maxTtl</tt>
+     *
+     * @param minTtl min ttl
+     * @param maxTtl max ttl
+     * @param timeUnit time unit of <tt>minTtl</tt> and <tt>maxTtl</tt>
+     *
+     * @return this {@link HttpJwksSource}
+     */
+    public HttpJwksSource withMaxAge(long minTtl, long maxTtl, TimeUnit timeUnit) {
+        Preconditions.checkArgument(minTtl > 0 && maxTtl >= minTtl, "Invalid ttl bounds");
+        this.honorMaxAge = true;
+        this.minTtlMillis = timeUnit.toMillis(minTtl);
+        this.maxTtlMillis = timeUnit.toMillis(maxTtl);
+        return this;
+    }
+
+    @Override
+    public synchronized List<Jwk> load() throws SigningKeyNotFoundException {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setConnectTimeout(connectTimeout);
+            connection.setReadTimeout(readTimeout);
+            connection.setRequestProperty("Accept", "application/json");
+            if (jwks != null && etag != null) {
+                connection.setRequestProperty("If-None-Match", etag);
+            }
+            if (jwks != null && lastModified != null) {
+                connection.setRequestProperty("If-Modified-Since", lastModified);
+            }
+
+            int status = connection.getResponseCode();
+            if (status == HttpURLConnection.HTTP_NOT_MODIFIED && jwks != null) {
+                consume(connection.getInputStream());
+                this.maxAgeMillis = maxAge(connection.getHeaderField("Cache-Control"), maxAgeMillis);
+                return jwks;
+            }
+            if (status != HttpURLConnection.HTTP_OK) {
+                consume(connection.getErrorStream());
+                throw new IOException("Unexpected response status " + status);
+            }
+
+            List<Jwk> loaded;
+            try (InputStream body = connection.getInputStream()) {
+                loaded = parse(MAPPER.readValue(body, JWKS_TYPE));
+            }
+            this.jwks = loaded;
+            this.etag = connection.getHeaderField("ETag");
+            this.lastModified = connection.getHeaderField("Last-Modified");
+            this.maxAgeMillis = maxAge(connection.getHeaderField("Cache-Control"), -1);
+            return loaded;
+        } catch (IOException | RuntimeException e) {
+            throw new SigningKeyNotFoundException("Cannot obtain jwks from url " + url.toString(), e);
+        }
+    }
+
+    @Override
+    public synchronized long ttlMillis(long defaultTtlMillis) {
+        if (!honorMaxAge || maxAgeMillis < 0) {
+            return defaultTtlMillis;
+        }
+        return Math.max(minTtlMillis, Math.min(maxTtlMillis, maxAgeMillis));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Jwk> parse(Map<String, Object> jwks) {
+        List<Map<String, Object>> keys = (List<Map<String, Object>>) jwks.get("keys");
+        if (keys == null || keys.isEmpty()) {
+            throw new IllegalArgumentException("No keys found");
+        }
+        List<Jwk> parsed = new ArrayList<>(keys.size());
+        for (Map<String, Object> key : keys) {
+            parsed.add(Jwk.fromValues(key));
+        }
+        return Collections.unmodifiableList(parsed);
+    }
+
+    /**
+     * @return <em>max-age</em> in millis, 0 if response must not be cached, <tt>otherwise</tt> if not specified
+     */
+    static long maxAge(String cacheControl, long otherwise) {
+        if (cacheControl == null) {
+            return otherwise;
+        }
+        for (String directive : cacheControl.split(",")) {
+            String value = directive.trim().toLowerCase(Locale.ROOT);
+            if (value.equals("no-cache") || value.equals("no-store")) {
+                return 0;
+            }
+            if (value.startsWith("max-age=")) {
+                try {
+                    return TimeUnit.SECONDS.toMillis(Long.parseLong(value.substring("max-age=".length()).trim()));
+                } catch (NumberFormatException e) {
+                    return otherwise;
+                }
+            }
+        }
+        return otherwise;
+    }
+
+    /**
+     * Read a response body to its end, so that the connection can be reused
+     */
+    private static void consume(InputStream body) throws IOException {
+        if (body == null) {
+            return;
+        }
+        try (InputStream in = body) {
+            byte[] buffer = new byte[1024];
+            while (in.read(buffer) >= 0) {
+                // discard
+            }
+        }
+    }
+}
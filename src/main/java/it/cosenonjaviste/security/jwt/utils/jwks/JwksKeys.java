@@ -0,0 +1,331 @@
+package it.cosenonjaviste.security.jwt.utils.jwks;
+
+import com.auth0.jwk.InvalidPublicKeyException;
+import com.auth0.jwk.Jwk;
+import com.auth0.jwk.JwkException;
+import com.auth0.jwk.SigningKeyNotFoundException;
+import com.auth0.jwt.exceptions.JWTDecodeException;
+import com.auth0.jwt.interfaces.RSAKeyProvider;
+import it.cosenonjaviste.security.jwt.utils.ExpiringCache;
+import it.cosenonjaviste.security.jwt.utils.Preconditions;
+
+import java.security.PublicKey;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * RSA public keys of a JWKS, indexed by <em>kid</em> and parsed once when the whole key set is loaded.
+ * <br>
+ * Looking up a key is a map lookup: the key set is loaded again when it expires or when an unknown <em>kid</em>
+ * is requested. Reloads on unknown kids are rate limited globally (at most one every 6 seconds by default)
+ * and, with {@link #withUnknownKidsCache(int, long, TimeUnit)}, kids still unknown after a reload are rejected
+ * at once for a while. Concurrent loads are coalesced into a single call to {@link JwksSource#load()}.
+ * <br>
+ * With {@link #withBackgroundRefresh(long, TimeUnit)}, expired keys are never loaded by callers of {@link #get(String)}:
+ * {@link #refresh()} is expected to be called ahead of expiration, see {@link JwksRefresher}.
+ */
+public class JwksKeys {
+
+    static final long DEFAULT_MISS_RELOAD_INTERVAL_MILLIS = 6_000;
+
+    private final JwksSource source;
+
+    private final long ttlMillis;
+
+    private final AtomicReference<CompletableFuture<Snapshot>> inFlight = new AtomicReference<>();
+
+    private final AtomicLong lastMissReloadAt = new AtomicLong();
+
+    private volatile Snapshot snapshot;
+
+    private boolean backgroundRefresh;
+
+    private long maxStalenessMillis;
+
+    private long missReloadIntervalMillis = DEFAULT_MISS_RELOAD_INTERVAL_MILLIS;
+
+    private ExpiringCache<String, Boolean> unknownKids;
+
+    private long unknownKidsTtlMillis;
+
+    /**
+     * @param source JWKS source
+     * @param ttl time a loaded key set is used before loading it again
+     * @param timeUnit time unit of <tt>ttl</tt>
+     */
+    public JwksKeys(JwksSource source, long ttl, TimeUnit timeUnit) {
+        Preconditions.checkArgument(ttl > 0, "JWKS ttl must be greater than 0");
+        this.source = source;
+        this.ttlMillis = timeUnit.toMillis(ttl);
+    }
+
+    /**
+     * Keep serving an expired key set for up to <tt>maxStaleness</tt>, instead of loading it again on lookup
+     *
+     * @param maxStaleness time an expired key set is still trusted, waiting for a successful {@link #refresh()}
+     * @param timeUnit time unit of <tt>maxStaleness</tt>
+     *
+     * @return this {@link JwksKeys}
+     */
+    public JwksKeys withBackgroundRefresh(long maxStaleness, TimeUnit timeUnit) {
+        Preconditions.checkArgument(maxStaleness >= 0, "JWKS max staleness cannot be negative");
+        this.backgroundRefresh = true;
+        this.maxStalenessMillis = timeUnit.toMillis(maxStaleness);
+        return this;
+    }
+
+    /**
+     * Minimum interval between two reloads caused by unknown kids, whatever kid is requested
+     *
+     * @param interval min interval between reloads
+     * @param timeUnit time unit of <tt>interval</tt>
+     *
+     * @return this {@link JwksKeys}
+     */
+    public JwksKeys withMissReloadInterval(long interval, TimeUnit timeUnit) {
+        Preconditions.checkArgument(interval >= 0, "JWKS miss reload interval cannot be negative");
+        this.missReloadIntervalMillis = timeUnit.toMillis(interval);
+        return this;
+    }
+
+    /**
+     * Reject kids still unknown after a reload without reloading again, for <tt>ttl</tt>.
+     * Keys published in the meantime are found as soon as the key set is loaded again
+     *
+     * @param maxSize maximum number of remembered kids
+     * @param ttl time an unknown kid is remembered
+     * @param timeUnit time unit of <tt>ttl</tt>
+     *
+     * @return this {@link JwksKeys}
+     */
+    public JwksKeys withUnknownKidsCache(int maxSize, long ttl, TimeUnit timeUnit) {
+        Preconditions.checkArgument(ttl > 0, "Unknown kids ttl must be greater than 0");
+        this.unknownKids = new ExpiringCache<>(maxSize);
+        this.unknownKidsTtlMillis = timeUnit.toMillis(ttl);
+        return this;
+    }
+
+    /**
+     * @return configured time a loaded key set is used before loading it again, in millis
+     */
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    /**
+     * @return time the current key set is used before loading it again, in millis, as granted by {@link JwksSource#ttlMillis(long)}
+     */
+    public long getCurrentTtlMillis() {
+        Snapshot current = this.snapshot;
+        return current != null ? current.expiresAt - current.loadedAt : ttlMillis;
+    }
+
+    /**
+     * Use <tt>jwks</tt> as a key set loaded at <tt>loadedAt</tt>, typically read from a {@link JwksSnapshotFile}
+     * with its modification time: keys age from then, as if they had been loaded by this instance.
+     * Does nothing if keys have already been loaded
+     *
+     * @param jwks previously loaded keys
+     * @param loadedAt time keys were loaded, in millis
+     */
+    public synchronized void seed(List<Jwk> jwks, long loadedAt) {
+        if (this.snapshot == null) {
+            this.snapshot = new Snapshot(jwks, parse(jwks), Math.min(loadedAt, System.currentTimeMillis()), ttlMillis);
+        }
+    }
+
+    /**
+     * @return true if a key set has been loaded or seeded
+     */
+    public boolean isLoaded() {
+        return this.snapshot != null;
+    }
+
+    /**
+     * Load the key set, whether it is expired or not
+     *
+     * @throws JwkException if keys cannot be loaded: current keys, if any, are kept
+     */
+    public void refresh() throws JwkException {
+        reload(this.snapshot);
+    }
+
+    /**
+     * @param kid key id, may be null for a key set with a key without id
+     *
+     * @throws JwkException if no RSA key with <tt>kid</tt> is available
+     *
+     * @return parsed public key
+     */
+    public RSAPublicKey get(String kid) throws JwkException {
+        Snapshot current = this.snapshot;
+        long now = System.currentTimeMillis();
+        boolean usable = current != null && current.isUsable(now, backgroundRefresh ? maxStalenessMillis : 0);
+        RSAPublicKey key = usable ? current.keys.get(kid) : null;
+        if (key != null) {
+            return key;
+        }
+        if (usable ? isKnownMissing(kid) || !tryMissReload(current, now) : backgroundRefresh) {
+            throw keyNotFound(kid, null);
+        }
+
+        try {
+            key = reload(current).keys.get(kid);
+        } catch (JwkException e) {
+            throw keyNotFound(kid, e);
+        }
+        if (key == null) {
+            rememberMissing(kid);
+            throw keyNotFound(kid, null);
+        }
+        return key;
+    }
+
+    /**
+     * @return a {@link RSAKeyProvider} for verifying tokens with the keys of this key set
+     */
+    public RSAKeyProvider asKeyProvider() {
+        return new RSAKeyProvider() {
+            @Override
+            public RSAPublicKey getPublicKeyById(String keyId) {
+                try {
+                    return get(keyId);
+                } catch (JwkException e) {
+                    throw new JWTDecodeException(e.getMessage(), e);
+                }
+            }
+
+            @Override
+            public RSAPrivateKey getPrivateKey() {
+                return null;
+            }
+
+            @Override
+            public String getPrivateKeyId() {
+                return null;
+            }
+        };
+    }
+
+    private boolean isKnownMissing(String kid) {
+        return unknownKids != null && kid != null && unknownKids.get(kid) != null;
+    }
+
+    private void rememberMissing(String kid) {
+        if (unknownKids != null && kid != null) {
+            unknownKids.put(kid, Boolean.TRUE, System.currentTimeMillis() + unknownKidsTtlMillis);
+        }
+    }
+
+    private boolean tryMissReload(Snapshot current, long now) {
+        long last = lastMissReloadAt.get();
+        return now - current.loadedAt >= missReloadIntervalMillis
+                && now - last >= missReloadIntervalMillis
+                && lastMissReloadAt.compareAndSet(last, now);
+    }
+
+    /**
+     * Load the key set, unless it has already been replaced since <tt>seen</tt> was read.
+     * Concurrent callers wait for the load in progress instead of starting their own
+     */
+    private Snapshot reload(Snapshot seen) throws JwkException {
+        while (true) {
+            CompletableFuture<Snapshot> flight = inFlight.get();
+            if (flight != null) {
+                return await(flight);
+            }
+            Snapshot current = this.snapshot;
+            if (current != seen) {
+                // reloaded by another thread in the meantime
+                return current;
+            }
+            CompletableFuture<Snapshot> own = new CompletableFuture<>();
+            if (inFlight.compareAndSet(null, own)) {
+                return load(own);
+            }
+        }
+    }
+
+    private Snapshot load(CompletableFuture<Snapshot> flight) throws JwkException {
+        try {
+            List<Jwk> jwks = source.load();
+            Snapshot current = this.snapshot;
+            // a source may return the same list when keys did not change: parsed keys are reused
+            Map<String, RSAPublicKey> keys = current != null && current.jwks == jwks ? current.keys : parse(jwks);
+            Snapshot loaded = new Snapshot(jwks, keys, System.currentTimeMillis(), source.ttlMillis(ttlMillis));
+            this.snapshot = loaded;
+            flight.complete(loaded);
+            return loaded;
+        } catch (JwkException | RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.set(null);
+        }
+    }
+
+    private static Snapshot await(CompletableFuture<Snapshot> flight) throws JwkException {
+        try {
+            return flight.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SigningKeyNotFoundException("Interrupted while waiting for JWKS", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof JwkException) {
+                throw (JwkException) e.getCause();
+            }
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    private static SigningKeyNotFoundException keyNotFound(String kid, Throwable cause) {
+        return new SigningKeyNotFoundException("Failed to get key with kid " + kid, cause);
+    }
+
+    private static Map<String, RSAPublicKey> parse(List<Jwk> jwks) {
+        Map<String, RSAPublicKey> keys = new HashMap<>();
+        for (Jwk jwk : jwks) {
+            if (!"RSA".equals(jwk.getType())) {
+                continue;
+            }
+            try {
+                PublicKey key = jwk.getPublicKey();
+                keys.put(jwk.getId(), (RSAPublicKey) key);
+            } catch (InvalidPublicKeyException e) {
+                // unusable key: tokens signed with it are rejected as signed with an unknown key
+            }
+        }
+        return Collections.unmodifiableMap(keys);
+    }
+
+    private static final class Snapshot {
+
+        private final List<Jwk> jwks;
+
+        private final Map<String, RSAPublicKey> keys;
+
+        private final long loadedAt;
+
+        private final long expiresAt;
+
+        private Snapshot(List<Jwk> jwks, Map<String, RSAPublicKey> keys, long loadedAt, long ttlMillis) {
+            this.jwks = jwks;
+            this.keys = keys;
+            this.loadedAt = loadedAt;
+            this.expiresAt = loadedAt + ttlMillis;
+        }
+
+        private boolean isUsable(long now, long maxStalenessMillis) {
+            return now < expiresAt + maxStalenessMillis;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package it.cosenonjaviste.security.jwt.utils.jwks;
+
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background refresh of {@link JwksKeys}, so that request threads never wait for the JWKS uri.
+ * <br>
+ * Keys are loaded when the refresher starts (in background, if they have already been seeded), then refreshed
+ * when about 3/4 of their current ttl has elapsed.
+ * Failed refreshes are retried with an exponential, jittered backoff, never longer than 1/4 of the ttl.
+ */
+public class JwksRefresher {
+
+    private static final Log LOG = LogFactory.getLog(JwksRefresher.class);
+
+    private static final long MIN_BACKOFF_MILLIS = 1000;
+
+    private final JwksKeys keys;
+
+    private final long maxBackoffMillis;
+
+    private ScheduledExecutorService executor;
+
+    private int failures;
+
+    /**
+     * @param keys keys to refresh, expected to be configured with {@link JwksKeys#withBackgroundRefresh(long, TimeUnit)}
+     */
+    public JwksRefresher(JwksKeys keys) {
+        this.keys = keys;
+        this.maxBackoffMillis = Math.max(MIN_BACKOFF_MILLIS, keys.getTtlMillis() / 4);
+    }
+
+    /**
+     * Load keys on the calling thread, unless already loaded, then schedule refreshes. Does nothing if already started
+     */
+    public synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jwks-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (keys.isLoaded()) {
+            ScheduledExecutorService scheduler = executor;
+            scheduler.execute(() -> refresh(scheduler));
+        } else {
+            refresh(executor);
+        }
+    }
+
+    /**
+     * Load keys once on a new background thread, typically for revalidating seeded keys
+     *
+     * @param keys keys to load
+     */
+    public static void revalidate(JwksKeys keys) {
+        Thread thread = new Thread(() -> {
+            try {
+                keys.refresh();
+            } catch (Exception e) {
+                LOG.warn("JWKS revalidation failed: " + e.getMessage(), e);
+            }
+        }, "jwks-revalidation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Cancel scheduled refreshes. Loaded keys are kept
+     */
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private void refresh(ScheduledExecutorService scheduler) {
+        long delay;
+        try {
+            keys.refresh();
+            failures = 0;
+            delay = nextRefreshDelay();
+        } catch (Exception e) {
+            failures++;
+            delay = backoffDelay();
+            LOG.warn("JWKS refresh failed, next attempt in " + delay + " ms: " + e.getMessage(), e);
+        }
+        synchronized (this) {
+            if (executor == scheduler) {
+                scheduler.schedule(() -> refresh(scheduler), delay, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private long nextRefreshDelay() {
+        long ttl = keys.getCurrentTtlMillis();
+        return ttl * 3 / 4 - jitter(ttl / 10);
+    }
+
+    private long backoffDelay() {
+        long backoff = MIN_BACKOFF_MILLIS << Math.min(failures - 1, 20);
+        backoff = Math.min(backoff, maxBackoffMillis);
+        return backoff / 2 + jitter(backoff / 2);
+    }
+
+    private static long jitter(long bound) {
+        return bound > 0 ? ThreadLocalRandom.current().nextLong(bound) : 0;
+    }
+}
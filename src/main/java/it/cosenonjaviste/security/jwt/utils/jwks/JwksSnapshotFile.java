@@ -0,0 +1,172 @@
+package it.cosenonjaviste.security.jwt.utils.jwks;
+
+import com.auth0.jwk.Jwk;
+import com.auth0.jwk.JwkException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Local copy of the last successfully loaded JWKS, in standard JWKS format.
+ * <br>
+ * The file is replaced atomically (temp file and rename in the same directory), so readers never see a partially
+ * written key set. It allows authenticating requests at startup before the IDP is contacted.
+ */
+public class JwksSnapshotFile {
+
+    private static final Log LOG = LogFactory.getLog(JwksSnapshotFile.class);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final TypeReference<Map<String, List<Map<String, Object>>>> JWKS_TYPE =
+            new TypeReference<Map<String, List<Map<String, Object>>>>() {
+            };
+
+    private final Path path;
+
+    /**
+     * @param path snapshot file, its directory must exist
+     */
+    public JwksSnapshotFile(Path path) {
+        this.path = path.toAbsolutePath();
+    }
+
+    /**
+     * @param maxAgeMillis snapshots modified earlier are ignored
+     *
+     * @return keys of the snapshot with its modification time, or null if missing, too old or not readable
+     */
+    public Content read(long maxAgeMillis) {
+        try {
+            if (!Files.isRegularFile(path)) {
+                return null;
+            }
+            long lastModified = Files.getLastModifiedTime(path).toMillis();
+            if (System.currentTimeMillis() - lastModified > maxAgeMillis) {
+                return null;
+            }
+            List<Map<String, Object>> keys = MAPPER.readValue(path.toFile(), JWKS_TYPE).get("keys");
+            if (keys == null) {
+                return null;
+            }
+            List<Jwk> jwks = new ArrayList<>(keys.size());
+            for (Map<String, Object> key : keys) {
+                jwks.add(Jwk.fromValues(key));
+            }
+            return new Content(jwks, lastModified);
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Unable to read JWKS snapshot " + path + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Replace the snapshot with <tt>jwks</tt>
+     *
+     * @param jwks keys to store
+     *
+     * @throws IOException if the snapshot cannot be written
+     */
+    public void write(List<Jwk> jwks) throws IOException {
+        List<Map<String, Object>> keys = new ArrayList<>(jwks.size());
+        for (Jwk jwk : jwks) {
+            keys.add(toValues(jwk));
+        }
+        byte[] content = MAPPER.writeValueAsBytes(Collections.singletonMap("keys", keys));
+
+        Path temp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, content);
+            try {
+                Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * @param source keys source
+     *
+     * @return a source storing into this snapshot every key set loaded from <tt>source</tt>
+     */
+    public JwksSource persisting(JwksSource source) {
+        return new JwksSource() {
+            @Override
+            public List<Jwk> load() throws JwkException {
+                List<Jwk> jwks = source.load();
+                try {
+                    write(jwks);
+                } catch (IOException e) {
+                    LOG.warn("Unable to write JWKS snapshot " + path + ": " + e.getMessage());
+                }
+                return jwks;
+            }
+
+            @Override
+            public long ttlMillis(long defaultTtlMillis) {
+                return source.ttlMillis(defaultTtlMillis);
+            }
+        };
+    }
+
+    private static Map<String, Object> toValues(Jwk jwk) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        putIfNotNull(values, "kid", jwk.getId());
+        putIfNotNull(values, "kty", jwk.getType());
+        putIfNotNull(values, "alg", jwk.getAlgorithm());
+        putIfNotNull(values, "use", jwk.getUsage());
+        putIfNotNull(values, "key_ops", jwk.getOperationsAsList());
+        putIfNotNull(values, "x5u", jwk.getCertificateUrl());
+        putIfNotNull(values, "x5c", jwk.getCertificateChain());
+        putIfNotNull(values, "x5t", jwk.getCertificateThumbprint());
+        values.putAll(jwk.getAdditionalAttributes());
+        return values;
+    }
+
+    private static void putIfNotNull(Map<String, Object> values, String name, Object value) {
+        if (value != null) {
+            values.put(name, value);
+        }
+    }
+
+    /**
+     * Keys read from a snapshot, with the time they were written
+     */
+    public static final class Content {
+
+        private final List<Jwk> jwks;
+
+        private final long lastModified;
+
+        private Content(List<Jwk> jwks, long lastModified) {
+            this.jwks = jwks;
+            this.lastModified = lastModified;
+        }
+
+        public List<Jwk> getJwks() {
+            return jwks;
+        }
+
+        /**
+         * @return modification time of the snapshot, in millis
+         */
+        public long getLastModified() {
+            return lastModified;
+        }
+    }
+}
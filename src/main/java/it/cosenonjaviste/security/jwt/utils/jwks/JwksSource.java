@@ -0,0 +1,30 @@
+package it.cosenonjaviste.security.jwt.utils.jwks;
+
+import com.auth0.jwk.Jwk;
+import com.auth0.jwk.JwkException;
+import com.auth0.jwk.UrlJwkProvider;
+
+import java.util.List;
+
+/**
+ * Source of a whole JWKS, such as {@link UrlJwkProvider#getAll()}
+ */
+@FunctionalInterface
+public interface JwksSource {
+
+    /**
+     * @throws JwkException if keys cannot be retrieved
+     *
+     * @return all published keys
+     */
+    List<Jwk> load() throws JwkException;
+
+    /**
+     * @param defaultTtlMillis configured ttl
+     *
+     * @return time the last loaded key set can be used before loading it again, in millis
+     */
+    default long ttlMillis(long defaultTtlMillis) {
+        return defaultTtlMillis;
+    }
+}
@@ -0,0 +1,229 @@
+package it.cosenonjaviste.security.jwt.utils.jwks;
+
+import com.auth0.jwk.Jwk;
+import com.auth0.jwk.JwkException;
+import com.auth0.jwk.SigningKeyNotFoundException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.cosenonjaviste.security.jwt.utils.Preconditions;
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * OpenID Connect discovery document (<em>.well-known/openid-configuration</em>) of an issuer, cached for <tt>ttl</tt>.
+ * <br>
+ * The document is loaded again, along with keys, by the {@link JwksSource} returned by {@link #jwksSource(Function)}:
+ * if it cannot be loaded, the cached copy is kept.
+ * <br>
+ * As required by OpenID Connect discovery, a document whose <em>issuer</em> differs from the expected issuer
+ * is never used.
+ */
+public class OidcDiscovery {
+
+    private static final Log LOG = LogFactory.getLog(OidcDiscovery.class);
+
+    static final String WELL_KNOWN_PATH = "/.well-known/openid-configuration";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final URL url;
+
+    private final int connectTimeout;
+
+    private final int readTimeout;
+
+    private final long ttlMillis;
+
+    private String issuer;
+
+    private volatile Metadata metadata;
+
+    private long loadedAt;
+
+    /**
+     * @param url discovery document url, see {@link #discoveryUrl(String)}
+     * @param connectTimeout connect timeout in millis
+     * @param readTimeout read timeout in millis
+     * @param ttl time the document is cached
+     * @param timeUnit time unit of <tt>ttl</tt>
+     */
+    public OidcDiscovery(URL url, int connectTimeout, int readTimeout, long ttl, TimeUnit timeUnit) {
+        Preconditions.checkArgument(ttl > 0, "Discovery ttl must be greater than 0");
+        this.url = url;
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        this.ttlMillis = timeUnit.toMillis(ttl);
+        this.issuer = issuer(url.toString());
+    }
+
+    /**
+     * Issuer the document must declare, compared as is. Default is the discovery document url
+     * without <em>/.well-known/openid-configuration</em>, see {@link #issuer(String)}
+     *
+     * @param issuer expected <em>issuer</em> value
+     *
+     * @return this {@link OidcDiscovery}
+     */
+    public OidcDiscovery withIssuer(String issuer) {
+        Preconditions.checkArgument(issuer != null, "issuer cannot be null");
+        this.issuer = issuer;
+        return this;
+    }
+
+    /**
+     * @param issuer issuer url, or discovery document url
+     *
+     * @throws MalformedURLException if <tt>issuer</tt> is not a valid url
+     *
+     * @return url of the discovery document of <tt>issuer</tt>
+     */
+    public static URL discoveryUrl(String issuer) throws MalformedURLException {
+        if (issuer.endsWith(WELL_KNOWN_PATH)) {
+            return new URL(issuer);
+        }
+        return new URL(issuer.endsWith("/") ? issuer.substring(0, issuer.length() - 1) + WELL_KNOWN_PATH : issuer + WELL_KNOWN_PATH);
+    }
+
+    /**
+     * @param issuer issuer url, or discovery document url
+     *
+     * @return <tt>issuer</tt> without <em>/.well-known/openid-configuration</em> suffix: a trailing slash
+     * of an issuer url is kept, as issuers like <em>https://tenant.auth0.com/</em> declare it
+     */
+    public static String issuer(String issuer) {
+        return issuer.endsWith(WELL_KNOWN_PATH) ? issuer.substring(0, issuer.length() - WELL_KNOWN_PATH.length()) : issuer;
+    }
+
+    /**
+     * @throws JwkException if the document has never been loaded and cannot be loaded now
+     *
+     * @return cached document, loaded again if expired
+     */
+    public synchronized Metadata get() throws JwkException {
+        if (metadata == null || System.currentTimeMillis() - loadedAt >= ttlMillis) {
+            try {
+                this.metadata = load();
+                this.loadedAt = System.currentTimeMillis();
+            } catch (JwkException e) {
+                if (metadata == null) {
+                    throw e;
+                }
+                LOG.warn("Unable to refresh OpenID configuration, cached copy is kept: " + e.getMessage());
+            }
+        }
+        return metadata;
+    }
+
+    /**
+     * @return cached document, without loading it, or null if never loaded
+     */
+    public Metadata current() {
+        return metadata;
+    }
+
+    /**
+     * @param sources factory of the source of keys published at a <em>jwks_uri</em>
+     *
+     * @return a source loading keys from the current <em>jwks_uri</em> of the document
+     */
+    public JwksSource jwksSource(Function<URL, JwksSource> sources) {
+        return new JwksSource() {
+
+            private String jwksUri;
+
+            private JwksSource delegate;
+
+            @Override
+            public synchronized List<Jwk> load() throws JwkException {
+                URL current = get().getJwksUri();
+                if (!current.toString().equals(jwksUri)) {
+                    this.delegate = sources.apply(current);
+                    this.jwksUri = current.toString();
+                }
+                return delegate.load();
+            }
+
+            @Override
+            public synchronized long ttlMillis(long defaultTtlMillis) {
+                return delegate != null ? delegate.ttlMillis(defaultTtlMillis) : defaultTtlMillis;
+            }
+        };
+    }
+
+    private Metadata load() throws JwkException {
+        Metadata loaded;
+        try {
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setConnectTimeout(connectTimeout);
+            connection.setReadTimeout(readTimeout);
+            connection.setRequestProperty("Accept", "application/json");
+            int status = connection.getResponseCode();
+            if (status != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Unexpected response status " + status);
+            }
+            JsonNode document;
+            try (InputStream body = connection.getInputStream()) {
+                document = MAPPER.readTree(body);
+            }
+            loaded = new Metadata(document);
+        } catch (IOException | RuntimeException e) {
+            throw new SigningKeyNotFoundException("Cannot obtain OpenID configuration from url " + url.toString(), e);
+        }
+        if (!issuer.equals(loaded.getIssuer())) {
+            throw new SigningKeyNotFoundException("OpenID configuration from url " + url.toString()
+                    + " declares issuer '" + loaded.getIssuer() + "', expected '" + issuer + "'", null);
+        }
+        return loaded;
+    }
+
+    /**
+     * Discovery document values used for verifying tokens
+     */
+    public static final class Metadata {
+
+        private final String issuer;
+
+        private final URL jwksUri;
+
+        private final Set<String> signingAlgorithms;
+
+        private Metadata(JsonNode document) throws MalformedURLException {
+            JsonNode jwksUri = document.path("jwks_uri");
+            Preconditions.checkArgument(jwksUri.isTextual(), "jwks_uri not found");
+            this.issuer = document.path("issuer").asText(null);
+            this.jwksUri = new URL(jwksUri.asText());
+            Set<String> algorithms = new HashSet<>();
+            for (JsonNode algorithm : document.path("id_token_signing_alg_values_supported")) {
+                algorithms.add(algorithm.asText());
+            }
+            this.signingAlgorithms = Collections.unmodifiableSet(algorithms);
+        }
+
+        public String getIssuer() {
+            return issuer;
+        }
+
+        public URL getJwksUri() {
+            return jwksUri;
+        }
+
+        /**
+         * @return supported <em>alg</em> values, empty if not published
+         */
+        public Set<String> getSigningAlgorithms() {
+            return signingAlgorithms;
+        }
+    }
+}
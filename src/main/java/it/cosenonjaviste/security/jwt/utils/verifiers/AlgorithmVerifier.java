@@ -0,0 +1,36 @@
+package it.cosenonjaviste.security.jwt.utils.verifiers;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.interfaces.DecodedJWT;
+
+/**
+ * Ready-made, thread-safe pair of {@link Algorithm} and {@link JWTVerifier}.
+ * <br>
+ * Built once, when a {@link VerifierStrategy} is created, and reused for every token signed with the same <em>alg</em>.
+ */
+final class AlgorithmVerifier {
+
+    private final Algorithm algorithm;
+
+    private final JWTVerifier verifier;
+
+    AlgorithmVerifier(Algorithm algorithm) {
+        this(algorithm, 0);
+    }
+
+    /**
+     * @param algorithm signing algorithm
+     * @param leeway tolerated clock skew, in seconds, for <em>exp</em>, <em>nbf</em> and <em>iat</em> claims
+     */
+    AlgorithmVerifier(Algorithm algorithm, long leeway) {
+        this.algorithm = algorithm;
+        this.verifier = JWT.require(algorithm).acceptLeeway(leeway).build();
+    }
+
+    Algorithm verify(DecodedJWT decodedJWT) {
+        verifier.verify(decodedJWT);
+        return algorithm;
+    }
+}
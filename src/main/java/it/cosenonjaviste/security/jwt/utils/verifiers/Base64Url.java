@@ -0,0 +1,75 @@
+package it.cosenonjaviste.security.jwt.utils.verifiers;
+
+import java.util.Arrays;
+
+/**
+ * Allocation-free Base64 decoder for token segments.
+ * <br>
+ * Like the decoder used by java-jwt, it accepts both url-safe and standard alphabets, with or without padding.
+ */
+final class Base64Url {
+
+    private static final byte[] DECODE_TABLE = new byte[128];
+
+    static {
+        Arrays.fill(DECODE_TABLE, (byte) -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+        for (int i = 0; i < alphabet.length(); i++) {
+            DECODE_TABLE[alphabet.charAt(i)] = (byte) i;
+        }
+        DECODE_TABLE['-'] = 62;
+        DECODE_TABLE['+'] = 62;
+        DECODE_TABLE['_'] = 63;
+        DECODE_TABLE['/'] = 63;
+    }
+
+    private Base64Url() {
+        // prevent instance
+    }
+
+    /**
+     * @param length encoded length, without padding
+     *
+     * @return number of decoded bytes
+     */
+    static int decodedLength(int length) {
+        return length * 3 / 4;
+    }
+
+    /**
+     * Decode <tt>src[from, to)</tt> into <tt>dst</tt>, starting from index 0
+     *
+     * @param src encoded text
+     * @param from first index, inclusive
+     * @param to last index, exclusive
+     * @param dst destination buffer
+     *
+     * @return number of decoded bytes, or -1 if text is not valid Base64 or <tt>dst</tt> is too small
+     */
+    static int decode(CharSequence src, int from, int to, byte[] dst) {
+        while (to > from && src.charAt(to - 1) == '=') {
+            to--;
+        }
+        if ((to - from) % 4 == 1 || decodedLength(to - from) > dst.length) {
+            return -1;
+        }
+
+        int accumulator = 0;
+        int bits = 0;
+        int length = 0;
+        for (int i = from; i < to; i++) {
+            char c = src.charAt(i);
+            int value = c < 128 ? DECODE_TABLE[c] : -1;
+            if (value < 0) {
+                return -1;
+            }
+            accumulator = (accumulator << 6) | value;
+            bits += 6;
+            if (bits >= 8) {
+                bits -= 8;
+                dst[length++] = (byte) (accumulator >> bits);
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,91 @@
+package it.cosenonjaviste.security.jwt.utils.verifiers;
+
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import it.cosenonjaviste.security.jwt.exceptions.RejectedTokenException;
+import it.cosenonjaviste.security.jwt.model.JwtAdapter;
+
+/**
+ * {@link VerifiedTokenCache} and {@link RejectedTokenCache} in front of a token verification function.
+ * <br>
+ * Only {@link JWTVerificationException} failures are remembered as rejections: any other exception thrown by
+ * the verification function is rethrown and the token is verified again on next request.
+ */
+public final class CachingVerifier {
+
+    /**
+     * Token verification function
+     *
+     * @param <E> checked exception thrown by verification, besides {@link JWTVerificationException}
+     */
+    @FunctionalInterface
+    public interface Verification<E extends Exception> {
+
+        /**
+         * @param token JWT token
+         *
+         * @throws JWTVerificationException if validation fails
+         * @throws E if verification cannot be completed
+         *
+         * @return {@link JwtAdapter}
+         */
+        JwtAdapter verify(String token) throws E;
+    }
+
+    private final VerifiedTokenCache cache;
+
+    private final RejectedTokenCache rejectedCache;
+
+    /**
+     * @param cache verified tokens cache, null to disable caching
+     * @param rejectedCache rejected tokens cache, null to disable caching
+     */
+    public CachingVerifier(VerifiedTokenCache cache, RejectedTokenCache rejectedCache) {
+        this.cache = cache;
+        this.rejectedCache = rejectedCache;
+    }
+
+    /**
+     * @param token JWT token
+     * @param verification verification of a token missing from caches
+     * @param <E> checked exception thrown by verification
+     *
+     * @throws RejectedTokenException if token was already rejected
+     * @throws JWTVerificationException if validation fails
+     * @throws E if verification cannot be completed
+     *
+     * @return {@link JwtAdapter}
+     */
+    public <E extends Exception> JwtAdapter verify(String token, Verification<E> verification) throws E {
+        if (cache == null && rejectedCache == null) {
+            return verification.verify(token);
+        }
+
+        TokenDigest digest = TokenDigest.of(token);
+        if (rejectedCache != null) {
+            JWTVerificationException rejection = rejectedCache.get(digest);
+            if (rejection != null) {
+                throw new RejectedTokenException(rejection);
+            }
+        }
+        if (cache != null) {
+            JwtAdapter cached = cache.get(digest);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        JwtAdapter verified;
+        try {
+            verified = verification.verify(token);
+        } catch (JWTVerificationException e) {
+            if (rejectedCache != null) {
+                rejectedCache.put(digest, e);
+            }
+            throw e;
+        }
+        if (cache != null) {
+            cache.put(digest, verified);
+        }
+        return verified;
+    }
+}
@@ -0,0 +1,244 @@
+package it.cosenonjaviste.security.jwt.utils.verifiers;
+
+import com.auth0.jwt.exceptions.InvalidClaimException;
+import com.auth0.jwt.exceptions.JWTDecodeException;
+import com.auth0.jwt.interfaces.Claim;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import it.cosenonjaviste.security.jwt.utils.Preconditions;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Declarative validation of token claims: required issuer, audiences, required claims and allowed claim values.
+ * <br>
+ * Rules are compiled once into a flat array of checks, evaluated in order over the decoded payload of each token
+ * after its signature has been verified. The first failing check throws an {@link InvalidClaimException}.
+ * <br>
+ * Time claims (<em>exp</em>, <em>nbf</em>, <em>iat</em>) are checked along with the signature: {@link #getLeeway()}
+ * is the clock skew, in seconds, tolerated there.
+ */
+public final class ClaimRules {
+
+    /**
+     * No rules and no leeway
+     */
+    public static final ClaimRules NONE = new ClaimRules(new Rule[0], 0);
+
+    private final Rule[] rules;
+
+    private final long leeway;
+
+    private ClaimRules(Rule[] rules, long leeway) {
+        this.rules = rules;
+        this.leeway = leeway;
+    }
+
+    /**
+     * @return a new {@link Builder}
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @param decodedJWT token to check
+     *
+     * @throws InvalidClaimException if a rule is not satisfied
+     */
+    public void check(DecodedJWT decodedJWT) {
+        for (Rule rule : rules) {
+            rule.check(decodedJWT);
+        }
+    }
+
+    /**
+     * @return tolerated clock skew, in seconds, for time claims
+     */
+    public long getLeeway() {
+        return leeway;
+    }
+
+    /**
+     * @return true if there are no claim checks
+     */
+    public boolean isEmpty() {
+        return rules.length == 0;
+    }
+
+    @FunctionalInterface
+    private interface Rule {
+
+        void check(DecodedJWT decodedJWT);
+    }
+
+    private static Rule issuerRule(Set<String> issuers) {
+        return decodedJWT -> {
+            String iss = decodedJWT.getIssuer();
+            if (!issuers.contains(iss)) {
+                throw new InvalidClaimException("Issuer claim value '" + iss + "' not supported");
+            }
+        };
+    }
+
+    private static Rule audienceRule(Set<String> audiences) {
+        return decodedJWT -> {
+            List<String> aud = decodedJWT.getAudience();
+            if (aud != null) {
+                for (String value : aud) {
+                    if (audiences.contains(value)) {
+                        return;
+                    }
+                }
+            }
+            throw new InvalidClaimException("Audience claim value '" + (aud != null ? String.join(", ", aud) : null) + "' not supported");
+        };
+    }
+
+    private static Rule requiredRule(String claimName) {
+        return decodedJWT -> {
+            if (decodedJWT.getClaim(claimName).isNull()) {
+                throw new InvalidClaimException("Claim '" + claimName + "' is required");
+            }
+        };
+    }
+
+    private static Rule allowedValuesRule(String claimName, Set<String> allowed) {
+        return decodedJWT -> {
+            Claim claim = decodedJWT.getClaim(claimName);
+            if (claim.isNull()) {
+                return;
+            }
+            List<String> values = values(claim);
+            for (String value : values) {
+                if (allowed.contains(value)) {
+                    return;
+                }
+            }
+            throw new InvalidClaimException("Claim '" + claimName + "' value '" + String.join(", ", values) + "' not allowed");
+        };
+    }
+
+    /**
+     * @return claim value as strings: a string, the elements of an array, or any other value as text
+     */
+    private static List<String> values(Claim claim) {
+        String value = claim.asString();
+        if (value != null) {
+            return Collections.singletonList(value);
+        }
+        try {
+            List<String> values = claim.asList(String.class);
+            if (values != null) {
+                return values;
+            }
+        } catch (JWTDecodeException e) {
+            // not an array of strings
+        }
+        return Collections.singletonList(String.valueOf(claim.as(Object.class)));
+    }
+
+    /**
+     * Builder of {@link ClaimRules}. Values are compared as is, without trimming
+     */
+    public static final class Builder {
+
+        private Set<String> issuers = Collections.emptySet();
+
+        private Set<String> audiences = Collections.emptySet();
+
+        private final Set<String> requiredClaims = new LinkedHashSet<>();
+
+        private final Map<String, Set<String>> allowedValues = new LinkedHashMap<>();
+
+        private long leeway;
+
+        private Builder() {
+
+        }
+
+        /**
+         * @param issuers allowed <em>iss</em> values, replacing previous ones. Empty for no validation
+         *
+         * @return this {@link Builder}
+         */
+        public Builder issuers(Collection<String> issuers) {
+            this.issuers = new HashSet<>(issuers);
+            return this;
+        }
+
+        /**
+         * @param audiences allowed <em>aud</em> values, replacing previous ones: at least one must be present
+         *                  in the token. Empty for no validation
+         *
+         * @return this {@link Builder}
+         */
+        public Builder audiences(Collection<String> audiences) {
+            this.audiences = new HashSet<>(audiences);
+            return this;
+        }
+
+        /**
+         * @param claimNames claims that must be present
+         *
+         * @return this {@link Builder}
+         */
+        public Builder requiredClaims(Collection<String> claimNames) {
+            this.requiredClaims.addAll(claimNames);
+            return this;
+        }
+
+        /**
+         * @param claimName claim name
+         * @param values allowed values of <tt>claimName</tt>, added to previous ones. Array claims are allowed
+         *               if they contain at least one of these values. A missing claim is allowed, unless required
+         *
+         * @return this {@link Builder}
+         */
+        public Builder allowedValues(String claimName, Collection<String> values) {
+            this.allowedValues.computeIfAbsent(claimName, name -> new HashSet<>()).addAll(values);
+            return this;
+        }
+
+        /**
+         * @param leeway tolerated clock skew, in seconds, for time claims
+         *
+         * @return this {@link Builder}
+         */
+        public Builder leeway(long leeway) {
+            Preconditions.checkArgument(leeway >= 0, "Leeway cannot be negative");
+            this.leeway = leeway;
+            return this;
+        }
+
+        /**
+         * @return compiled {@link ClaimRules}
+         */
+        public ClaimRules build() {
+            List<Rule> rules = new ArrayList<>();
+            if (!issuers.isEmpty()) {
+                rules.add(issuerRule(issuers));
+            }
+            if (!audiences.isEmpty()) {
+                rules.add(audienceRule(audiences));
+            }
+            for (String claimName : requiredClaims) {
+                rules.add(requiredRule(claimName));
+            }
+            for (Map.Entry<String, Set<String>> entry : allowedValues.entrySet()) {
+                rules.add(allowedValuesRule(entry.getKey(), new HashSet<>(entry.getValue())));
+            }
+            if (rules.isEmpty() && leeway == 0) {
+                return NONE;
+            }
+            return new ClaimRules(rules.toArray(new Rule[0]), leeway);
+        }
+    }
+}
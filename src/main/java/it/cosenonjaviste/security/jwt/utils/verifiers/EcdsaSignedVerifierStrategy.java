@@ -0,0 +1,49 @@
+package it.cosenonjaviste.security.jwt.utils.verifiers;
+
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.auth0.jwt.interfaces.ECDSAKeyProvider;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Verify tokens signed with ECDSA.
+ * <br>
+ *
+ * Supported algorithms are:
+ * <ul>
+ *     <li>ECDSA with P-256 curve and SHA-256 (ES256)</li>
+ *     <li>ECDSA with P-384 curve and SHA-384 (ES384)</li>
+ *     <li>ECDSA with P-521 curve and SHA-512 (ES512)</li>
+ * </ul>
+ *
+ * Verifiers for each algorithm are built once, on strategy creation, and selected by token header <em>alg</em>.
+ */
+class EcdsaSignedVerifierStrategy implements VerifierStrategy {
+
+    private final Map<String, AlgorithmVerifier> verifiers;
+
+    EcdsaSignedVerifierStrategy(ECDSAKeyProvider keyProvider) {
+        this(keyProvider, 0);
+    }
+
+    EcdsaSignedVerifierStrategy(ECDSAKeyProvider keyProvider, long leeway) {
+        Map<String, AlgorithmVerifier> verifiers = new HashMap<>();
+        verifiers.put("ES256", new AlgorithmVerifier(Algorithm.ECDSA256(keyProvider), leeway));
+        verifiers.put("ES384", new AlgorithmVerifier(Algorithm.ECDSA384(keyProvider), leeway));
+        verifiers.put("ES512", new AlgorithmVerifier(Algorithm.ECDSA512(keyProvider), leeway));
+        this.verifiers = Collections.unmodifiableMap(verifiers);
+    }
+
+    @Override
+    public Algorithm verify(DecodedJWT decodedJWT) {
+        AlgorithmVerifier verifier = verifiers.get(decodedJWT.getAlgorithm());
+        if (verifier == null) {
+            throw new JWTVerificationException("With EC keys, only ECDSA algorithms are supported");
+        }
+        return verifier.verify(decodedJWT);
+    }
+}
@@ -0,0 +1,151 @@
+package it.cosenonjaviste.security.jwt.utils.verifiers;
+
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.SignatureGenerationException;
+import com.auth0.jwt.exceptions.SignatureVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import it.cosenonjaviste.security.jwt.utils.Preconditions;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.util.function.Function;
+
+/**
+ * EdDSA {@link Algorithm} (<em>alg</em> <tt>EdDSA</tt>, RFC 8037) with Ed25519 keys.
+ * <br>
+ * java-jwt has no EdDSA support: signatures are computed by the JDK <tt>Ed25519</tt> provider, available since Java 15.
+ * Check {@link #isSupported()} before use on older runtimes. {@link Signature} instances are kept per thread.
+ */
+public final class EdDsaAlgorithm extends Algorithm {
+
+    /**
+     * JWS <em>alg</em> value
+     */
+    public static final String NAME = "EdDSA";
+
+    private static final String JCA_NAME = "Ed25519";
+
+    private final Function<String, PublicKey> publicKeys;
+
+    private final PrivateKey privateKey;
+
+    private final String privateKeyId;
+
+    private final ThreadLocal<Signature> signatures;
+
+    private EdDsaAlgorithm(Function<String, PublicKey> publicKeys, PrivateKey privateKey, String privateKeyId) {
+        super(NAME, JCA_NAME);
+        Preconditions.checkArgument(publicKeys != null || privateKey != null, "Both provided Keys cannot be null.");
+        this.publicKeys = publicKeys;
+        this.privateKey = privateKey;
+        this.privateKeyId = privateKeyId;
+        this.signatures = ThreadLocal.withInitial(EdDsaAlgorithm::newSignature);
+    }
+
+    /**
+     * @return true if the running JDK provides Ed25519 signatures
+     */
+    public static boolean isSupported() {
+        try {
+            Signature.getInstance(JCA_NAME);
+            return true;
+        } catch (NoSuchAlgorithmException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @param publicKey key for verifying, may be null if only signing
+     * @param privateKey key for signing, may be null if only verifying
+     *
+     * @return a new Ed25519 {@link Algorithm}
+     */
+    public static Algorithm ed25519(PublicKey publicKey, PrivateKey privateKey) {
+        return new EdDsaAlgorithm(publicKey != null ? kid -> publicKey : null, privateKey, null);
+    }
+
+    /**
+     * @param publicKeys public keys by token <em>kid</em>, may be null if only signing
+     * @param privateKey key for signing, may be null if only verifying
+     * @param privateKeyId <em>kid</em> of signed tokens, may be null
+     *
+     * @return a new Ed25519 {@link Algorithm}
+     */
+    public static Algorithm ed25519(Function<String, PublicKey> publicKeys, PrivateKey privateKey, String privateKeyId) {
+        return new EdDsaAlgorithm(publicKeys, privateKey, privateKeyId);
+    }
+
+    @Override
+    public void verify(DecodedJWT jwt) throws SignatureVerificationException {
+        try {
+            PublicKey publicKey = publicKeys != null ? publicKeys.apply(jwt.getKeyId()) : null;
+            if (publicKey == null) {
+                throw new IllegalStateException("The given Public Key is null.");
+            }
+            byte[] signatureBytes = new byte[Base64Url.decodedLength(jwt.getSignature().length())];
+            int length = Base64Url.decode(jwt.getSignature(), 0, jwt.getSignature().length(), signatureBytes);
+
+            Signature signature = signatures.get();
+            signature.initVerify(publicKey);
+            signature.update(jwt.getHeader().getBytes(StandardCharsets.US_ASCII));
+            signature.update((byte) '.');
+            signature.update(jwt.getPayload().getBytes(StandardCharsets.US_ASCII));
+            if (length != signatureBytes.length || !signature.verify(signatureBytes)) {
+                throw new SignatureVerificationException(this);
+            }
+        } catch (GeneralSecurityException | IllegalStateException | IllegalArgumentException e) {
+            throw new SignatureVerificationException(this, e);
+        }
+    }
+
+    @Override
+    public byte[] sign(byte[] headerBytes, byte[] payloadBytes) throws SignatureGenerationException {
+        try {
+            Signature signature = initSign();
+            signature.update(headerBytes);
+            signature.update((byte) '.');
+            signature.update(payloadBytes);
+            return signature.sign();
+        } catch (GeneralSecurityException | IllegalStateException e) {
+            throw new SignatureGenerationException(this, e);
+        }
+    }
+
+    @Override
+    @Deprecated
+    public byte[] sign(byte[] contentBytes) throws SignatureGenerationException {
+        try {
+            Signature signature = initSign();
+            signature.update(contentBytes);
+            return signature.sign();
+        } catch (GeneralSecurityException | IllegalStateException e) {
+            throw new SignatureGenerationException(this, e);
+        }
+    }
+
+    @Override
+    public String getSigningKeyId() {
+        return privateKeyId;
+    }
+
+    private Signature initSign() throws GeneralSecurityException {
+        if (privateKey == null) {
+            throw new IllegalStateException("The given Private Key is null.");
+        }
+        Signature signature = signatures.get();
+        signature.initSign(privateKey);
+        return signature;
+    }
+
+    private static Signature newSignature() {
+        try {
+            return Signature.getInstance(JCA_NAME);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Ed25519 signatures require Java 15 or later", e);
+        }
+    }
+}
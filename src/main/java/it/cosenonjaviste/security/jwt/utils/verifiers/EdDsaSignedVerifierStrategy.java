@@ -0,0 +1,32 @@
+package it.cosenonjaviste.security.jwt.utils.verifiers;
+
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+
+import java.security.PublicKey;
+import java.util.function.Function;
+
+/**
+ * Verify tokens signed with EdDSA and Ed25519 keys (<em>alg</em> <tt>EdDSA</tt>), see {@link EdDsaAlgorithm}
+ */
+class EdDsaSignedVerifierStrategy implements VerifierStrategy {
+
+    private final AlgorithmVerifier verifier;
+
+    EdDsaSignedVerifierStrategy(Function<String, PublicKey> publicKeys) {
+        this(publicKeys, 0);
+    }
+
+    EdDsaSignedVerifierStrategy(Function<String, PublicKey> publicKeys, long leeway) {
+        this.verifier = new AlgorithmVerifier(EdDsaAlgorithm.ed25519(publicKeys, null, null), leeway);
+    }
+
+    @Override
+    public Algorithm verify(DecodedJWT decodedJWT) {
+        if (!EdDsaAlgorithm.NAME.equals(decodedJWT.getAlgorithm())) {
+            throw new JWTVerificationException("With Ed25519 keys, only EdDSA algorithm is supported");
+        }
+        return verifier.verify(decodedJWT);
+    }
+}
@@ -0,0 +1,161 @@
+package it.cosenonjaviste.security.jwt.utils.verifiers;
+
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.SignatureGenerationException;
+import com.auth0.jwt.exceptions.SignatureVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import it.cosenonjaviste.security.jwt.utils.Preconditions;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * HMAC {@link Algorithm} designed for high throughput verification.
+ * <br>
+ * Compared to the java-jwt implementation, which gets and initializes a new {@link Mac} for each token:
+ * <ul>
+ *     <li>{@link Mac} instances are keyed once and kept per thread, cloned from a pre-keyed prototype</li>
+ *     <li>signing input is copied from token segments into a per-thread buffer, with no intermediate {@link String}</li>
+ *     <li>signature is decoded into a per-thread buffer and compared in constant time</li>
+ * </ul>
+ * Verifying a token does not allocate, once the per-thread state is warm.
+ */
+final class HmacEngine extends Algorithm {
+
+    private final String jcaName;
+
+    private final SecretKeySpec key;
+
+    private final Mac prototype;
+
+    private final ThreadLocal<State> states;
+
+    HmacEngine(String name, String jcaName, String secret) {
+        super(name, jcaName);
+        Preconditions.checkArgument(secret != null, "The Secret cannot be null");
+        this.jcaName = jcaName;
+        this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), jcaName);
+        try {
+            this.prototype = newMac();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+        this.states = ThreadLocal.withInitial(() -> new State(cloneMac()));
+    }
+
+    static HmacEngine hs256(String secret) {
+        return new HmacEngine("HS256", "HmacSHA256", secret);
+    }
+
+    static HmacEngine hs384(String secret) {
+        return new HmacEngine("HS384", "HmacSHA384", secret);
+    }
+
+    static HmacEngine hs512(String secret) {
+        return new HmacEngine("HS512", "HmacSHA512", secret);
+    }
+
+    @Override
+    public void verify(DecodedJWT jwt) throws SignatureVerificationException {
+        State state = states.get();
+        Mac mac = state.mac;
+        mac.reset();
+
+        String header = jwt.getHeader();
+        String payload = jwt.getPayload();
+        byte[] input = state.input(header.length() + 1 + payload.length());
+        int length = copyAscii(header, input, 0);
+        input[length++] = '.';
+        length = copyAscii(payload, input, length);
+        mac.update(input, 0, length);
+
+        String signature = jwt.getSignature();
+        int signatureLength = Base64Url.decode(signature, 0, signature.length(), state.actual);
+        try {
+            mac.doFinal(state.expected, 0);
+        } catch (ShortBufferException e) {
+            throw new SignatureVerificationException(this, e);
+        }
+
+        if (signatureLength != state.expected.length || !MessageDigest.isEqual(state.expected, state.actual)) {
+            throw new SignatureVerificationException(this);
+        }
+    }
+
+    @Override
+    public byte[] sign(byte[] headerBytes, byte[] payloadBytes) throws SignatureGenerationException {
+        Mac mac = states.get().mac;
+        mac.reset();
+        mac.update(headerBytes);
+        mac.update((byte) '.');
+        mac.update(payloadBytes);
+        return mac.doFinal();
+    }
+
+    @Override
+    @Deprecated
+    public byte[] sign(byte[] contentBytes) throws SignatureGenerationException {
+        Mac mac = states.get().mac;
+        mac.reset();
+        return mac.doFinal(contentBytes);
+    }
+
+    /**
+     * Token segments are Base64 encoded, hence ASCII: each char is a byte
+     */
+    private static int copyAscii(String segment, byte[] dst, int offset) {
+        int length = segment.length();
+        for (int i = 0; i < length; i++) {
+            dst[offset + i] = (byte) segment.charAt(i);
+        }
+        return offset + length;
+    }
+
+    private Mac newMac() throws NoSuchAlgorithmException, InvalidKeyException {
+        Mac mac = Mac.getInstance(jcaName);
+        mac.init(key);
+        return mac;
+    }
+
+    private Mac cloneMac() {
+        try {
+            return (Mac) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            try {
+                return newMac();
+            } catch (GeneralSecurityException ex) {
+                throw new IllegalStateException(ex.getMessage(), ex);
+            }
+        }
+    }
+
+    private static final class State {
+
+        private final Mac mac;
+
+        private final byte[] expected;
+
+        private final byte[] actual;
+
+        private byte[] input = new byte[1024];
+
+        private State(Mac mac) {
+            this.mac = mac;
+            this.expected = new byte[mac.getMacLength()];
+            this.actual = new byte[mac.getMacLength()];
+        }
+
+        private byte[] input(int length) {
+            if (input.length < length) {
+                input = new byte[Math.max(length, input.length * 2)];
+            }
+            return input;
+        }
+    }
+}
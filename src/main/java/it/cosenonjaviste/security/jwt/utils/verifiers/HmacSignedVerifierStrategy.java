@@ -1,10 +1,13 @@
 package it.cosenonjaviste.security.jwt.utils.verifiers;
 
-import com.auth0.jwt.JWT;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.auth0.jwt.interfaces.DecodedJWT;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Verify tokens signed with HMAC.
  * <br>
@@ -19,33 +22,33 @@ import com.auth0.jwt.interfaces.DecodedJWT;
  *     <li>HmacSHA512 (HS512)</li>
  * </ul>
  *
+ * Verifiers for each algorithm are built once, on strategy creation, and selected by token header <em>alg</em>.
+ * Signatures are checked by {@link HmacEngine}.
+ *
  * @author acomo
  */
 class HmacSignedVerifierStrategy implements VerifierStrategy {
 
-    private String secret;
+    private final Map<String, AlgorithmVerifier> verifiers;
 
     HmacSignedVerifierStrategy(String secret) {
-        this.secret = secret;
+        this(secret, 0);
     }
 
-    @Override
-    public Algorithm verify(DecodedJWT decodedJWT) {
-        Algorithm algorithm = getAlgorithmInstanceFrom(decodedJWT.getAlgorithm());
-        JWT.require(algorithm).build().verify(decodedJWT);
-        return algorithm;
+    HmacSignedVerifierStrategy(String secret, long leeway) {
+        Map<String, AlgorithmVerifier> verifiers = new HashMap<>();
+        verifiers.put("HS256", new AlgorithmVerifier(HmacEngine.hs256(secret), leeway));
+        verifiers.put("HS384", new AlgorithmVerifier(HmacEngine.hs384(secret), leeway));
+        verifiers.put("HS512", new AlgorithmVerifier(HmacEngine.hs512(secret), leeway));
+        this.verifiers = Collections.unmodifiableMap(verifiers);
     }
 
-    private Algorithm getAlgorithmInstanceFrom(String algorithm) {
-        switch (algorithm) {
-            case "HS256":
-                return Algorithm.HMAC256(secret);
-            case "HS384":
-                return Algorithm.HMAC384(secret);
-            case "HS512":
-                return Algorithm.HMAC512(secret);
-            default:
-                throw new JWTVerificationException("With secret text, only HMAC algorithms are supported");
+    @Override
+    public Algorithm verify(DecodedJWT decodedJWT) {
+        AlgorithmVerifier verifier = verifiers.get(decodedJWT.getAlgorithm());
+        if (verifier == null) {
+            throw new JWTVerificationException("With secret text, only HMAC algorithms are supported");
         }
+        return verifier.verify(decodedJWT);
     }
 }
@@ -1,13 +1,20 @@
 package it.cosenonjaviste.security.jwt.utils.verifiers;
 
-import com.auth0.jwt.JWT;
 import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTDecodeException;
 import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.auth0.jwt.interfaces.DecodedJWT;
+import com.auth0.jwt.interfaces.ECDSAKeyProvider;
 import com.auth0.jwt.interfaces.RSAKeyProvider;
+import it.cosenonjaviste.security.jwt.exceptions.RejectedTokenException;
 import it.cosenonjaviste.security.jwt.model.JwtAdapter;
+import it.cosenonjaviste.security.jwt.utils.JwtConstants;
 
 import java.nio.file.attribute.UserPrincipal;
+import java.security.PublicKey;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.LongFunction;
 
 /**
  * Helper class for simplifying token verification procedure.
@@ -24,10 +31,22 @@ public class JwtTokenVerifier {
 	
 	private VerifierStrategy verifierStrategy;
 
+	private LongFunction<VerifierStrategy> verifierStrategies;
+
+	private ClaimRules claimRules = ClaimRules.NONE;
+
 	private String customUserIdClaim;
 
 	private String customRolesClaim;
 
+	private VerifiedTokenCache cache;
+
+	private RejectedTokenCache rejectedCache;
+
+	private CachingVerifier cachingVerifier = new CachingVerifier(null, null);
+
+	private Set<String> eagerClaims;
+
 	private JwtTokenVerifier() {
 
 	}
@@ -41,7 +60,7 @@ public class JwtTokenVerifier {
 	 */
 	public static JwtTokenVerifier create(String secret) {
 		JwtTokenVerifier tokenVerifier = new JwtTokenVerifier();
-		tokenVerifier.verifierStrategy = new HmacSignedVerifierStrategy(secret);
+		tokenVerifier.withStrategies(leeway -> new HmacSignedVerifierStrategy(secret, leeway));
 		return tokenVerifier;
 	}
 
@@ -56,7 +75,7 @@ public class JwtTokenVerifier {
 	 */
 	public static JwtTokenVerifier create(String secret, String customUserIdClaim, String customRolesClaim) {
 		JwtTokenVerifier tokenVerifier = new JwtTokenVerifier();
-		tokenVerifier.verifierStrategy = new HmacSignedVerifierStrategy(secret);
+		tokenVerifier.withStrategies(leeway -> new HmacSignedVerifierStrategy(secret, leeway));
 		tokenVerifier.customUserIdClaim = customUserIdClaim;
 		tokenVerifier.customRolesClaim = customRolesClaim;
 		return tokenVerifier;
@@ -71,7 +90,7 @@ public class JwtTokenVerifier {
 	 */
 	public static JwtTokenVerifier create(RSAKeyProvider rsaKeyProvider) {
 		JwtTokenVerifier tokenVerifier = new JwtTokenVerifier();
-		tokenVerifier.verifierStrategy = new RsaSignedVerifierStrategy(rsaKeyProvider);
+		tokenVerifier.withStrategies(leeway -> new RsaSignedVerifierStrategy(rsaKeyProvider, leeway));
 		return tokenVerifier;
 	}
 
@@ -86,14 +105,150 @@ public class JwtTokenVerifier {
 	 */
 	public static JwtTokenVerifier create(RSAKeyProvider rsaKeyProvider, String customUserIdClaim, String customRolesClaim) {
 		JwtTokenVerifier tokenVerifier = new JwtTokenVerifier();
-		tokenVerifier.verifierStrategy = new RsaSignedVerifierStrategy(rsaKeyProvider);
+		tokenVerifier.withStrategies(leeway -> new RsaSignedVerifierStrategy(rsaKeyProvider, leeway));
 		tokenVerifier.customUserIdClaim = customUserIdClaim;
 		tokenVerifier.customRolesClaim = customRolesClaim;
 		return tokenVerifier;
 	}
 
 	/**
-	 * Verify provided token delegating verification logic to proper strategy of {@link VerifierStrategy}
+	 * Creates a new instance of {@link JwtTokenVerifier} class for ECDSA and certificate verification
+	 *
+	 * @param ecdsaKeyProvider key provider
+	 *
+	 * @return a new instance of {@link JwtTokenVerifier} class
+	 */
+	public static JwtTokenVerifier create(ECDSAKeyProvider ecdsaKeyProvider) {
+		return create(ecdsaKeyProvider, null, null);
+	}
+
+	/**
+	 * Creates a new instance of {@link JwtTokenVerifier} class for ECDSA and certificate verification
+	 *
+	 * @param ecdsaKeyProvider key provider
+	 * @param customUserIdClaim claim to use for identifying user id
+	 * @param customRolesClaim claim to use fot identifies user roles
+	 *
+	 * @return a new instance of {@link JwtTokenVerifier} class
+	 */
+	public static JwtTokenVerifier create(ECDSAKeyProvider ecdsaKeyProvider, String customUserIdClaim, String customRolesClaim) {
+		JwtTokenVerifier tokenVerifier = new JwtTokenVerifier();
+		tokenVerifier.withStrategies(leeway -> new EcdsaSignedVerifierStrategy(ecdsaKeyProvider, leeway));
+		tokenVerifier.customUserIdClaim = customUserIdClaim;
+		tokenVerifier.customRolesClaim = customRolesClaim;
+		return tokenVerifier;
+	}
+
+	/**
+	 * Creates a new instance of {@link JwtTokenVerifier} class for EdDSA (Ed25519) verification, see {@link EdDsaAlgorithm}
+	 *
+	 * @param publicKeys Ed25519 public keys by token <em>kid</em>
+	 * @param customUserIdClaim claim to use for identifying user id
+	 * @param customRolesClaim claim to use fot identifies user roles
+	 *
+	 * @return a new instance of {@link JwtTokenVerifier} class
+	 */
+	public static JwtTokenVerifier createEdDsa(Function<String, PublicKey> publicKeys, String customUserIdClaim, String customRolesClaim) {
+		JwtTokenVerifier tokenVerifier = new JwtTokenVerifier();
+		tokenVerifier.withStrategies(leeway -> new EdDsaSignedVerifierStrategy(publicKeys, leeway));
+		tokenVerifier.customUserIdClaim = customUserIdClaim;
+		tokenVerifier.customRolesClaim = customRolesClaim;
+		return tokenVerifier;
+	}
+
+	private void withStrategies(LongFunction<VerifierStrategy> verifierStrategies) {
+		this.verifierStrategies = verifierStrategies;
+		this.verifierStrategy = verifierStrategies.apply(0);
+	}
+
+	/**
+	 * Check claims of every verified token against <tt>claimRules</tt>, tolerating their leeway on time claims
+	 *
+	 * @param claimRules compiled claim rules, null to disable claim checks
+	 *
+	 * @return this {@link JwtTokenVerifier}
+	 */
+	public JwtTokenVerifier withClaimRules(ClaimRules claimRules) {
+		ClaimRules rules = claimRules != null ? claimRules : ClaimRules.NONE;
+		if (rules.getLeeway() != this.claimRules.getLeeway()) {
+			this.verifierStrategy = verifierStrategies.apply(rules.getLeeway());
+		}
+		this.claimRules = rules;
+		return this;
+	}
+
+	/**
+	 * Skip verification of tokens already verified by this instance, as long as they are in <tt>cache</tt>
+	 *
+	 * @param cache verified tokens cache, null to disable caching
+	 *
+	 * @return this {@link JwtTokenVerifier}
+	 */
+	public JwtTokenVerifier withCache(VerifiedTokenCache cache) {
+		this.cache = cache;
+		this.cachingVerifier = new CachingVerifier(cache, rejectedCache);
+		return this;
+	}
+
+	/**
+	 * Reject tokens already rejected by this instance without verifying them again, as long as they are in <tt>rejectedCache</tt>
+	 *
+	 * @param rejectedCache rejected tokens cache, null to disable caching
+	 *
+	 * @return this {@link JwtTokenVerifier}
+	 */
+	public JwtTokenVerifier withRejectedCache(RejectedTokenCache rejectedCache) {
+		this.rejectedCache = rejectedCache;
+		this.cachingVerifier = new CachingVerifier(cache, rejectedCache);
+		return this;
+	}
+
+	/**
+	 * Decode only registered claims and claims needed by {@link JwtAdapter} while verifying a token:
+	 * other claims are decoded on first access. Worthwhile with tokens carrying many claims
+	 *
+	 * @param lazyClaims true for enabling lazy decoding
+	 *
+	 * @return this {@link JwtTokenVerifier}
+	 */
+	public JwtTokenVerifier withLazyClaims(boolean lazyClaims) {
+		this.eagerClaims = lazyClaims ? LazyDecodedJWT.eagerClaims(
+				customUserIdClaim != null ? customUserIdClaim : JwtConstants.USER_ID,
+				customRolesClaim != null ? customRolesClaim : JwtConstants.ROLES) : null;
+		return this;
+	}
+
+	/**
+	 * Decode provided token, without verifying it
+	 *
+	 * @param token JWT token
+	 *
+	 * @throws JWTDecodeException if token is malformed
+	 *
+	 * @return decoded token
+	 */
+	public DecodedJWT decode(String token) {
+		return eagerClaims != null ? TokenDecoder.decode(token, eagerClaims) : TokenDecoder.decode(token);
+	}
+
+	/**
+	 * Decode provided token, without verifying it and with all claims decoded
+	 *
+	 * @param token JWT token
+	 *
+	 * @throws JWTDecodeException if token is malformed
+	 *
+	 * @return decoded token
+	 */
+	public static DecodedJWT decodeToken(String token) {
+		return TokenDecoder.decode(token);
+	}
+
+	/**
+	 * Verify provided token delegating verification logic to proper strategy of {@link VerifierStrategy}.
+	 * <br>
+	 * If a {@link VerifiedTokenCache} is configured, a previously verified token is returned without verifying it again.
+	 * If a {@link RejectedTokenCache} is configured, a previously rejected token fails with a {@link RejectedTokenException}
 	 *
 	 * @param token JWT token
 	 *
@@ -102,11 +257,12 @@ public class JwtTokenVerifier {
 	 * @return {@link JwtAdapter}
 	 */
 	public JwtAdapter verify(String token) {
-		return verify(JWT.decode(token));
+		return cachingVerifier.verify(token, t -> verify(decode(t)));
 	}
 
 	/**
-	 * Verify provided token delegating verification logic to proper strategy of {@link VerifierStrategy}
+	 * Verify provided token delegating verification logic to proper strategy of {@link VerifierStrategy},
+	 * then check its claims against configured {@link ClaimRules}
 	 *
 	 * @param decodedJWT decoded JWT token
 	 *
@@ -116,6 +272,7 @@ public class JwtTokenVerifier {
 	 */
 	public JwtAdapter verify(DecodedJWT decodedJWT) {
 		Algorithm algorithm = verifierStrategy.verify(decodedJWT);
+		claimRules.check(decodedJWT);
 		return new JwtAdapter(algorithm, decodedJWT, customUserIdClaim, customRolesClaim);
 	}
 }
@@ -0,0 +1,260 @@
+package it.cosenonjaviste.security.jwt.utils.verifiers;
+
+import com.auth0.jwt.exceptions.JWTDecodeException;
+import com.auth0.jwt.impl.PublicClaims;
+import com.auth0.jwt.interfaces.Claim;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.auth0.jwt.interfaces.Header;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * {@link DecodedJWT} that streams the payload and keeps only a projection of its claims, built by {@link TokenDecoder}.
+ * <br>
+ * Registered date claims, <em>aud</em>, <em>iss</em> and the claims required by the caller are read eagerly:
+ * any other claim is decoded on first access, parsing the whole payload once.
+ */
+final class LazyDecodedJWT implements DecodedJWT {
+
+    private static final Set<String> REGISTERED_CLAIMS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            PublicClaims.EXPIRES_AT, PublicClaims.NOT_BEFORE, PublicClaims.ISSUED_AT,
+            PublicClaims.AUDIENCE, PublicClaims.ISSUER)));
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private static final ObjectReader READER = MAPPER.reader();
+
+    private static final TypeReference<Map<String, JsonNode>> TREE_TYPE = new TypeReference<Map<String, JsonNode>>() {
+    };
+
+    private final String token;
+
+    private final String header;
+
+    private final String payload;
+
+    private final String signature;
+
+    private final Header parsedHeader;
+
+    private final byte[] payloadJson;
+
+    private final Set<String> eagerClaims;
+
+    private final Map<String, JsonNode> projection;
+
+    private final Date expiresAt;
+
+    private final Date notBefore;
+
+    private final Date issuedAt;
+
+    private volatile Map<String, JsonNode> tree;
+
+    LazyDecodedJWT(String token, String header, String payload, String signature,
+                   Header parsedHeader, byte[] payloadJson, Set<String> eagerClaims) {
+        this.token = token;
+        this.header = header;
+        this.payload = payload;
+        this.signature = signature;
+        this.parsedHeader = parsedHeader;
+        this.payloadJson = payloadJson;
+        this.eagerClaims = eagerClaims;
+        this.projection = project(payloadJson, eagerClaims);
+        this.expiresAt = dateClaim(PublicClaims.EXPIRES_AT);
+        this.notBefore = dateClaim(PublicClaims.NOT_BEFORE);
+        this.issuedAt = dateClaim(PublicClaims.ISSUED_AT);
+    }
+
+    /**
+     * @param eagerClaims claims to read while decoding, in addition to registered date claims, <em>aud</em> and <em>iss</em>
+     *
+     * @return set of claims to be passed to {@link TokenDecoder#decode(String, Set)}
+     */
+    static Set<String> eagerClaims(String... eagerClaims) {
+        Set<String> claims = new HashSet<>(REGISTERED_CLAIMS);
+        claims.addAll(Arrays.asList(eagerClaims));
+        return Collections.unmodifiableSet(claims);
+    }
+
+    private static Map<String, JsonNode> project(byte[] json, Set<String> claims) {
+        Map<String, JsonNode> projection = new HashMap<>();
+        try (JsonParser parser = MAPPER.getFactory().createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw invalidJson(json);
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                parser.nextToken();
+                if (claims.contains(name)) {
+                    projection.put(name, MAPPER.readTree(parser));
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (parser.currentToken() != JsonToken.END_OBJECT) {
+                throw invalidJson(json);
+            }
+        } catch (IOException e) {
+            throw invalidJson(json);
+        }
+        return projection;
+    }
+
+    private static JWTDecodeException invalidJson(byte[] json) {
+        return new JWTDecodeException(String.format("The string '%s' doesn't have a valid JSON format.",
+                new String(json, StandardCharsets.UTF_8)));
+    }
+
+    private JsonNode node(String name) {
+        return eagerClaims.contains(name) ? projection.get(name) : tree().get(name);
+    }
+
+    private Map<String, JsonNode> tree() {
+        Map<String, JsonNode> tree = this.tree;
+        if (tree == null) {
+            try {
+                tree = Collections.unmodifiableMap(MAPPER.readValue(payloadJson, TREE_TYPE));
+            } catch (IOException e) {
+                throw invalidJson(payloadJson);
+            }
+            this.tree = tree;
+        }
+        return tree;
+    }
+
+    private Date dateClaim(String name) {
+        JsonNode node = projection.get(name);
+        if (node == null || node.isNull()) {
+            return null;
+        }
+        if (!node.canConvertToLong()) {
+            throw new JWTDecodeException(String.format("The claim '%s' contained a non-numeric date value.", name));
+        }
+        return new Date(node.asLong() * 1000);
+    }
+
+    private String stringClaim(String name) {
+        JsonNode node = node(name);
+        return node == null || node.isNull() ? null : node.asText(null);
+    }
+
+    @Override
+    public String getAlgorithm() {
+        return parsedHeader.getAlgorithm();
+    }
+
+    @Override
+    public String getType() {
+        return parsedHeader.getType();
+    }
+
+    @Override
+    public String getContentType() {
+        return parsedHeader.getContentType();
+    }
+
+    @Override
+    public String getKeyId() {
+        return parsedHeader.getKeyId();
+    }
+
+    @Override
+    public Claim getHeaderClaim(String name) {
+        return parsedHeader.getHeaderClaim(name);
+    }
+
+    @Override
+    public String getIssuer() {
+        return stringClaim(PublicClaims.ISSUER);
+    }
+
+    @Override
+    public String getSubject() {
+        return stringClaim(PublicClaims.SUBJECT);
+    }
+
+    @Override
+    public List<String> getAudience() {
+        JsonNode node = node(PublicClaims.AUDIENCE);
+        if (node == null || node.isNull() || !node.isArray() && !node.isTextual()) {
+            return null;
+        }
+        if (node.isTextual() && !node.asText().isEmpty()) {
+            return Collections.singletonList(node.asText());
+        }
+        List<String> audience = new ArrayList<>(node.size());
+        for (int i = 0; i < node.size(); i++) {
+            try {
+                audience.add(READER.treeToValue(node.get(i), String.class));
+            } catch (IOException e) {
+                throw new JWTDecodeException("Couldn't map the Claim's array contents to String", e);
+            }
+        }
+        return audience;
+    }
+
+    @Override
+    public Date getExpiresAt() {
+        return expiresAt;
+    }
+
+    @Override
+    public Date getNotBefore() {
+        return notBefore;
+    }
+
+    @Override
+    public Date getIssuedAt() {
+        return issuedAt;
+    }
+
+    @Override
+    public String getId() {
+        return stringClaim(PublicClaims.JWT_ID);
+    }
+
+    @Override
+    public Claim getClaim(String name) {
+        return NodeClaim.of(node(name), READER);
+    }
+
+    @Override
+    public Map<String, Claim> getClaims() {
+        Map<String, Claim> claims = new HashMap<>();
+        for (Map.Entry<String, JsonNode> entry : tree().entrySet()) {
+            claims.put(entry.getKey(), NodeClaim.of(entry.getValue(), READER));
+        }
+        return Collections.unmodifiableMap(claims);
+    }
+
+    @Override
+    public String getHeader() {
+        return header;
+    }
+
+    @Override
+    public String getPayload() {
+        return payload;
+    }
+
+    @Override
+    public String getSignature() {
+        return signature;
+    }
+
+    @Override
+    public String getToken() {
+        return token;
+    }
+}
@@ -0,0 +1,143 @@
+package it.cosenonjaviste.security.jwt.utils.verifiers;
+
+import com.auth0.jwt.exceptions.JWTDecodeException;
+import com.auth0.jwt.impl.NullClaim;
+import com.auth0.jwt.interfaces.Claim;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link Claim} backed by a Jackson node, with the same conversion rules of java-jwt claims
+ * (whose implementation is not part of java-jwt public API)
+ */
+final class NodeClaim implements Claim {
+
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<Map<String, Object>>() {
+    };
+
+    private final JsonNode data;
+
+    private final ObjectReader objectReader;
+
+    private NodeClaim(JsonNode data, ObjectReader objectReader) {
+        this.data = data;
+        this.objectReader = objectReader;
+    }
+
+    /**
+     * @param node claim value, may be null
+     * @param objectReader reader used for mapping complex values
+     *
+     * @return a {@link Claim} instance, a {@link NullClaim} if node is missing or null
+     */
+    static Claim of(JsonNode node, ObjectReader objectReader) {
+        if (node == null || node.isNull() || node.isMissingNode()) {
+            return new NullClaim();
+        }
+        return new NodeClaim(node, objectReader);
+    }
+
+    @Override
+    public boolean isNull() {
+        return false;
+    }
+
+    @Override
+    public Boolean asBoolean() {
+        return !data.isBoolean() ? null : data.asBoolean();
+    }
+
+    @Override
+    public Integer asInt() {
+        return !data.isNumber() ? null : data.asInt();
+    }
+
+    @Override
+    public Long asLong() {
+        return !data.isNumber() ? null : data.asLong();
+    }
+
+    @Override
+    public Double asDouble() {
+        return !data.isNumber() ? null : data.asDouble();
+    }
+
+    @Override
+    public String asString() {
+        return !data.isTextual() ? null : data.asText();
+    }
+
+    @Override
+    public Date asDate() {
+        if (!data.canConvertToLong()) {
+            return null;
+        }
+        return new Date(data.asLong() * 1000);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T[] asArray(Class<T> tClazz) throws JWTDecodeException {
+        if (!data.isArray()) {
+            return null;
+        }
+
+        T[] array = (T[]) Array.newInstance(tClazz, data.size());
+        for (int i = 0; i < data.size(); i++) {
+            array[i] = treeToValue(data.get(i), tClazz);
+        }
+        return array;
+    }
+
+    @Override
+    public <T> List<T> asList(Class<T> tClazz) throws JWTDecodeException {
+        if (!data.isArray()) {
+            return null;
+        }
+
+        List<T> list = new ArrayList<>();
+        for (int i = 0; i < data.size(); i++) {
+            list.add(treeToValue(data.get(i), tClazz));
+        }
+        return list;
+    }
+
+    @Override
+    public Map<String, Object> asMap() throws JWTDecodeException {
+        if (!data.isObject()) {
+            return null;
+        }
+
+        try {
+            return objectReader.treeAsTokens(data).readValueAs(MAP_TYPE);
+        } catch (IOException e) {
+            throw new JWTDecodeException("Couldn't map the Claim value to Map", e);
+        }
+    }
+
+    @Override
+    public <T> T as(Class<T> tClazz) throws JWTDecodeException {
+        try {
+            return objectReader.treeAsTokens(data).readValueAs(tClazz);
+        } catch (IOException e) {
+            throw new JWTDecodeException("Couldn't map the Claim value to " + tClazz.getSimpleName(), e);
+        }
+    }
+
+    private <T> T treeToValue(JsonNode node, Class<T> tClazz) {
+        try {
+            return objectReader.treeToValue(node, tClazz);
+        } catch (JsonProcessingException e) {
+            throw new JWTDecodeException("Couldn't map the Claim's array contents to " + tClazz.getSimpleName(), e);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package it.cosenonjaviste.security.jwt.utils.verifiers;
+
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.exceptions.TokenExpiredException;
+import it.cosenonjaviste.security.jwt.utils.ExpiringCache;
+import it.cosenonjaviste.security.jwt.utils.Preconditions;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded cache of rejected tokens and their verification failure, keyed by {@link TokenDigest}.
+ * <br>
+ * Clients replaying the same invalid token are rejected without decoding and verifying it again.
+ * Failures are remembered for a short <tt>ttl</tt>, except for expired tokens, that can never become valid again
+ * and are only evicted when the cache is full.
+ */
+public class RejectedTokenCache {
+
+    private final ExpiringCache<TokenDigest, JWTVerificationException> cache;
+
+    private final long ttlMillis;
+
+    /**
+     * @param maxSize maximum number of cached tokens
+     * @param ttl time a failure is remembered, except for expired tokens
+     * @param timeUnit time unit of <tt>ttl</tt>
+     */
+    public RejectedTokenCache(int maxSize, long ttl, TimeUnit timeUnit) {
+        Preconditions.checkArgument(ttl > 0, "Cache ttl must be greater than 0");
+        this.cache = new ExpiringCache<>(maxSize);
+        this.ttlMillis = timeUnit.toMillis(ttl);
+    }
+
+    /**
+     * @param digest token digest
+     *
+     * @return verification failure or null if not cached or expired
+     */
+    public JWTVerificationException get(TokenDigest digest) {
+        return cache.get(digest);
+    }
+
+    /**
+     * Cache a verification failure
+     *
+     * @param digest token digest
+     * @param failure verification failure
+     */
+    public void put(TokenDigest digest, JWTVerificationException failure) {
+        long expiresAt = failure instanceof TokenExpiredException ? Long.MAX_VALUE : System.currentTimeMillis() + ttlMillis;
+        cache.put(digest, failure, expiresAt);
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+}
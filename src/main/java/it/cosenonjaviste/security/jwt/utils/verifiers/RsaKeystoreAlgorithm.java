@@ -0,0 +1,191 @@
+package it.cosenonjaviste.security.jwt.utils.verifiers;
+
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.SignatureGenerationException;
+import com.auth0.jwt.exceptions.SignatureVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import it.cosenonjaviste.security.jwt.utils.Preconditions;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyStore;
+import java.security.NoSuchAlgorithmException;
+import java.security.Signature;
+import java.security.cert.Certificate;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Enumeration;
+
+/**
+ * RSA {@link Algorithm} (RS256, RS384, RS512) signing with a key pair of a keystore, with the same conventions of
+ * <tt>RsaJwtTokenValve</tt>: <tt>keystorePath</tt>, <tt>keystorePassword</tt> and <tt>keyPairsAlias</tt>
+ * (by default, the first key pair of the keystore).
+ * <br>
+ * Signed tokens get the alias as <em>kid</em>. <tt>RsaJwtTokenValve</tt> verifies them with the certificate of
+ * its <tt>keyPairsAlias</tt>, or with the certificate of the <em>kid</em> alias only when it is listed in its
+ * <tt>trustedAliases</tt>. Keys are read once; {@link Signature} instances are kept per thread instead of being looked up
+ * for each token, so a single instance can be shared, e.g. by a {@link it.cosenonjaviste.security.jwt.utils.JwtTokenTemplate}.
+ */
+public final class RsaKeystoreAlgorithm extends Algorithm {
+
+    private final RSAPublicKey publicKey;
+
+    private final RSAPrivateKey privateKey;
+
+    private final String keyPairsAlias;
+
+    private final ThreadLocal<Signature> signatures;
+
+    private RsaKeystoreAlgorithm(String name, String jcaName, RSAPublicKey publicKey, RSAPrivateKey privateKey, String keyPairsAlias) {
+        super(name, jcaName);
+        this.publicKey = publicKey;
+        this.privateKey = privateKey;
+        this.keyPairsAlias = keyPairsAlias;
+        this.signatures = ThreadLocal.withInitial(() -> newSignature(jcaName));
+    }
+
+    /**
+     * RS256 algorithm, reading the key pair with <tt>keystorePassword</tt>
+     *
+     * @param keystorePath keystore file system path
+     * @param keystorePassword password of keystore and key pair
+     * @param keyPairsAlias key pair alias, may be null for the first key pair in keystore
+     *
+     * @return a new RS256 {@link Algorithm}
+     *
+     * @throws IOException if keystore cannot be read
+     * @throws GeneralSecurityException if keystore or key pair cannot be loaded
+     * @throws IllegalArgumentException if alias is missing or has not a RSA key pair
+     */
+    public static Algorithm rs256(String keystorePath, String keystorePassword, String keyPairsAlias) throws IOException, GeneralSecurityException {
+        KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
+        try (InputStream in = new FileInputStream(keystorePath)) {
+            keyStore.load(in, keystorePassword.toCharArray());
+        }
+        return create("RS256", keyStore, keyPairsAlias, keystorePassword);
+    }
+
+    /**
+     * @param keyStore keystore
+     * @param keyPairsAlias key pair alias, may be null for the first key pair in keystore
+     * @param keyPassword key pair password
+     *
+     * @return a new RS256 {@link Algorithm}
+     *
+     * @throws GeneralSecurityException if key pair cannot be loaded
+     * @throws IllegalArgumentException if alias is missing or has not a RSA key pair
+     */
+    public static Algorithm rs256(KeyStore keyStore, String keyPairsAlias, String keyPassword) throws GeneralSecurityException {
+        return create("RS256", keyStore, keyPairsAlias, keyPassword);
+    }
+
+    /**
+     * @param name RS256, RS384 or RS512
+     * @param keyStore keystore
+     * @param keyPairsAlias key pair alias, may be null for the first key pair in keystore
+     * @param keyPassword key pair password
+     *
+     * @return a new RSA {@link Algorithm}
+     *
+     * @throws GeneralSecurityException if key pair cannot be loaded
+     * @throws IllegalArgumentException if algorithm is not supported, or alias is missing or has not a RSA key pair
+     */
+    public static Algorithm create(String name, KeyStore keyStore, String keyPairsAlias, String keyPassword) throws GeneralSecurityException {
+        String jcaName = jcaName(name);
+        String alias = keyPairsAlias != null ? keyPairsAlias : firstKeyPair(keyStore);
+        Preconditions.checkArgument(alias != null && keyStore.isKeyEntry(alias), "Alias '" + alias + "' not found in keystore");
+
+        Certificate certificate = keyStore.getCertificate(alias);
+        Key key = keyStore.getKey(alias, keyPassword != null ? keyPassword.toCharArray() : null);
+        Preconditions.checkArgument(key instanceof RSAPrivateKey && certificate != null && certificate.getPublicKey() instanceof RSAPublicKey,
+                "Alias '" + alias + "' has a " + key.getAlgorithm() + " key, not supported by " + RsaKeystoreAlgorithm.class.getSimpleName());
+
+        return new RsaKeystoreAlgorithm(name, jcaName, (RSAPublicKey) certificate.getPublicKey(), (RSAPrivateKey) key, alias);
+    }
+
+    @Override
+    public void verify(DecodedJWT jwt) throws SignatureVerificationException {
+        try {
+            byte[] signatureBytes = new byte[Base64Url.decodedLength(jwt.getSignature().length())];
+            int length = Base64Url.decode(jwt.getSignature(), 0, jwt.getSignature().length(), signatureBytes);
+
+            Signature signature = signatures.get();
+            signature.initVerify(publicKey);
+            signature.update(jwt.getHeader().getBytes(StandardCharsets.US_ASCII));
+            signature.update((byte) '.');
+            signature.update(jwt.getPayload().getBytes(StandardCharsets.US_ASCII));
+            if (length != signatureBytes.length || !signature.verify(signatureBytes)) {
+                throw new SignatureVerificationException(this);
+            }
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new SignatureVerificationException(this, e);
+        }
+    }
+
+    @Override
+    public byte[] sign(byte[] headerBytes, byte[] payloadBytes) throws SignatureGenerationException {
+        try {
+            Signature signature = signatures.get();
+            signature.initSign(privateKey);
+            signature.update(headerBytes);
+            signature.update((byte) '.');
+            signature.update(payloadBytes);
+            return signature.sign();
+        } catch (GeneralSecurityException e) {
+            throw new SignatureGenerationException(this, e);
+        }
+    }
+
+    @Override
+    @Deprecated
+    public byte[] sign(byte[] contentBytes) throws SignatureGenerationException {
+        try {
+            Signature signature = signatures.get();
+            signature.initSign(privateKey);
+            signature.update(contentBytes);
+            return signature.sign();
+        } catch (GeneralSecurityException e) {
+            throw new SignatureGenerationException(this, e);
+        }
+    }
+
+    @Override
+    public String getSigningKeyId() {
+        return keyPairsAlias;
+    }
+
+    private static String jcaName(String name) {
+        switch (name) {
+            case "RS256":
+                return "SHA256withRSA";
+            case "RS384":
+                return "SHA384withRSA";
+            case "RS512":
+                return "SHA512withRSA";
+            default:
+                throw new IllegalArgumentException("Algorithm '" + name + "' not supported, only RS256, RS384 and RS512");
+        }
+    }
+
+    private static String firstKeyPair(KeyStore keyStore) throws GeneralSecurityException {
+        for (Enumeration<String> aliases = keyStore.aliases(); aliases.hasMoreElements(); ) {
+            String alias = aliases.nextElement();
+            if (keyStore.isKeyEntry(alias)) {
+                return alias;
+            }
+        }
+        return null;
+    }
+
+    private static Signature newSignature(String jcaName) {
+        try {
+            return Signature.getInstance(jcaName);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+}
@@ -1,36 +1,36 @@
 package it.cosenonjaviste.security.jwt.utils.verifiers;
 
-import com.auth0.jwt.JWT;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.auth0.jwt.interfaces.DecodedJWT;
 import com.auth0.jwt.interfaces.RSAKeyProvider;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
 class RsaSignedVerifierStrategy implements VerifierStrategy {
 
-    private RSAKeyProvider keyProvider;
+    private final Map<String, AlgorithmVerifier> verifiers;
 
     RsaSignedVerifierStrategy(RSAKeyProvider keyProvider) {
-        this.keyProvider = keyProvider;
+        this(keyProvider, 0);
     }
 
-    @Override
-    public Algorithm verify(DecodedJWT decodedJWT) {
-        Algorithm algorithm = getAlgorithmInstanceFrom(decodedJWT.getAlgorithm());
-        JWT.require(algorithm).build().verify(decodedJWT);
-        return algorithm;
+    RsaSignedVerifierStrategy(RSAKeyProvider keyProvider, long leeway) {
+        Map<String, AlgorithmVerifier> verifiers = new HashMap<>();
+        verifiers.put("RS256", new AlgorithmVerifier(Algorithm.RSA256(keyProvider), leeway));
+        verifiers.put("RS384", new AlgorithmVerifier(Algorithm.RSA384(keyProvider), leeway));
+        verifiers.put("RS512", new AlgorithmVerifier(Algorithm.RSA512(keyProvider), leeway));
+        this.verifiers = Collections.unmodifiableMap(verifiers);
     }
 
-    private Algorithm getAlgorithmInstanceFrom(String algorithm) {
-        switch (algorithm) {
-            case "RS256":
-                return Algorithm.RSA256(keyProvider);
-            case "RS384":
-                return Algorithm.RSA384(keyProvider);
-            case "RS512":
-                return Algorithm.RSA512(keyProvider);
-            default:
-                throw new JWTVerificationException("With a keystore, only RSA algorithms are supported");
+    @Override
+    public Algorithm verify(DecodedJWT decodedJWT) {
+        AlgorithmVerifier verifier = verifiers.get(decodedJWT.getAlgorithm());
+        if (verifier == null) {
+            throw new JWTVerificationException("With a keystore, only RSA algorithms are supported");
         }
+        return verifier.verify(decodedJWT);
     }
 }
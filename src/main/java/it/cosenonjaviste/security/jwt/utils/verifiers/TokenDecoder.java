@@ -0,0 +1,256 @@
+package it.cosenonjaviste.security.jwt.utils.verifiers;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.exceptions.JWTDecodeException;
+import com.auth0.jwt.impl.JWTParser;
+import com.auth0.jwt.interfaces.Claim;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.auth0.jwt.interfaces.Header;
+import com.auth0.jwt.interfaces.Payload;
+import it.cosenonjaviste.security.jwt.utils.ExpiringCache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Drop-in replacement of {@link JWT#decode(String)}, sharing its costly parts among all tokens:
+ * <ul>
+ *     <li>one pre-configured, thread-safe {@link JWTParser}, instead of a new one (and a new Jackson mapper) per token</li>
+ *     <li>Base64 segments decoded into per-thread buffers</li>
+ *     <li>parsed headers cached by their encoded segment, since almost every token sent by the same issuer has the same header</li>
+ * </ul>
+ * Malformed tokens are rejected with the same messages of java-jwt.
+ */
+final class TokenDecoder {
+
+    private static final int MAX_CACHED_HEADERS = 256;
+
+    private static final int MAX_RETAINED_BUFFER = 16 * 1024;
+
+    private static final JWTParser PARSER = new JWTParser();
+
+    private static final ExpiringCache<String, Header> HEADERS = new ExpiringCache<>(MAX_CACHED_HEADERS);
+
+    private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[1024]);
+
+    private TokenDecoder() {
+        // prevent instance
+    }
+
+    /**
+     * @param token compact JWT
+     *
+     * @throws JWTDecodeException if token is malformed
+     *
+     * @return decoded token, with all claims decoded
+     */
+    static DecodedJWT decode(String token) {
+        int firstDot = firstDot(token);
+        int secondDot = secondDot(token, firstDot);
+        String header = token.substring(0, firstDot);
+        String payload = token.substring(firstDot + 1, secondDot);
+        Payload parsedPayload = PARSER.parsePayload(decodeToString(payload));
+        return new DecodedToken(token, header, payload, token.substring(secondDot + 1), parseHeader(header), parsedPayload);
+    }
+
+    /**
+     * @param token compact JWT
+     * @param eagerClaims claims decoded immediately, see {@link LazyDecodedJWT#eagerClaims(String...)}
+     *
+     * @throws JWTDecodeException if token is malformed
+     *
+     * @return decoded token, with claims other than <tt>eagerClaims</tt> decoded on first access
+     */
+    static DecodedJWT decode(String token, Set<String> eagerClaims) {
+        int firstDot = firstDot(token);
+        int secondDot = secondDot(token, firstDot);
+        String header = token.substring(0, firstDot);
+        String payload = token.substring(firstDot + 1, secondDot);
+        return new LazyDecodedJWT(token, header, payload, token.substring(secondDot + 1),
+                parseHeader(header), decodeToBytes(payload), eagerClaims);
+    }
+
+    private static int firstDot(String token) {
+        int firstDot = token.indexOf('.');
+        if (firstDot < 0) {
+            throw wrongPartsNumber(token);
+        }
+        return firstDot;
+    }
+
+    private static int secondDot(String token, int firstDot) {
+        int secondDot = token.indexOf('.', firstDot + 1);
+        if (secondDot < 0 || token.indexOf('.', secondDot + 1) >= 0) {
+            throw wrongPartsNumber(token);
+        }
+        return secondDot;
+    }
+
+    private static JWTDecodeException wrongPartsNumber(String token) {
+        return new JWTDecodeException(String.format("The token was expected to have 3 parts, but got %s.",
+                token.split("\\.").length));
+    }
+
+    private static Header parseHeader(String segment) {
+        Header header = HEADERS.get(segment);
+        if (header == null) {
+            header = PARSER.parseHeader(decodeToString(segment));
+            HEADERS.put(segment, header, Long.MAX_VALUE);
+        }
+        return header;
+    }
+
+    private static String decodeToString(String segment) {
+        byte[] buffer = buffer(segment.length());
+        int length = decode(segment, buffer);
+        return new String(buffer, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] decodeToBytes(String segment) {
+        byte[] buffer = buffer(segment.length());
+        int length = decode(segment, buffer);
+        return Arrays.copyOf(buffer, length);
+    }
+
+    private static int decode(String segment, byte[] buffer) {
+        int length = Base64Url.decode(segment, 0, segment.length(), buffer);
+        if (length < 0) {
+            throw new JWTDecodeException(String.format("The string '%s' doesn't have a valid Base64 format.", segment));
+        }
+        return length;
+    }
+
+    private static byte[] buffer(int encodedLength) {
+        int length = Base64Url.decodedLength(encodedLength);
+        byte[] buffer = BUFFER.get();
+        if (buffer.length >= length) {
+            return buffer;
+        }
+        buffer = new byte[length];
+        if (length <= MAX_RETAINED_BUFFER) {
+            BUFFER.set(buffer);
+        }
+        return buffer;
+    }
+
+    /**
+     * {@link DecodedJWT} made of a shared {@link Header} and its own {@link Payload}
+     */
+    private static final class DecodedToken implements DecodedJWT {
+
+        private final String token;
+
+        private final String header;
+
+        private final String payload;
+
+        private final String signature;
+
+        private final Header parsedHeader;
+
+        private final Payload parsedPayload;
+
+        private DecodedToken(String token, String header, String payload, String signature, Header parsedHeader, Payload parsedPayload) {
+            this.token = token;
+            this.header = header;
+            this.payload = payload;
+            this.signature = signature;
+            this.parsedHeader = parsedHeader;
+            this.parsedPayload = parsedPayload;
+        }
+
+        @Override
+        public String getAlgorithm() {
+            return parsedHeader.getAlgorithm();
+        }
+
+        @Override
+        public String getType() {
+            return parsedHeader.getType();
+        }
+
+        @Override
+        public String getContentType() {
+            return parsedHeader.getContentType();
+        }
+
+        @Override
+        public String getKeyId() {
+            return parsedHeader.getKeyId();
+        }
+
+        @Override
+        public Claim getHeaderClaim(String name) {
+            return parsedHeader.getHeaderClaim(name);
+        }
+
+        @Override
+        public String getIssuer() {
+            return parsedPayload.getIssuer();
+        }
+
+        @Override
+        public String getSubject() {
+            return parsedPayload.getSubject();
+        }
+
+        @Override
+        public List<String> getAudience() {
+            return parsedPayload.getAudience();
+        }
+
+        @Override
+        public Date getExpiresAt() {
+            return parsedPayload.getExpiresAt();
+        }
+
+        @Override
+        public Date getNotBefore() {
+            return parsedPayload.getNotBefore();
+        }
+
+        @Override
+        public Date getIssuedAt() {
+            return parsedPayload.getIssuedAt();
+        }
+
+        @Override
+        public String getId() {
+            return parsedPayload.getId();
+        }
+
+        @Override
+        public Claim getClaim(String name) {
+            return parsedPayload.getClaim(name);
+        }
+
+        @Override
+        public Map<String, Claim> getClaims() {
+            return parsedPayload.getClaims();
+        }
+
+        @Override
+        public String getHeader() {
+            return header;
+        }
+
+        @Override
+        public String getPayload() {
+            return payload;
+        }
+
+        @Override
+        public String getSignature() {
+            return signature;
+        }
+
+        @Override
+        public String getToken() {
+            return token;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package it.cosenonjaviste.security.jwt.utils.verifiers;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * SHA-256 digest of a whole compact token, suitable as a cache key.
+ * <br>
+ * Keeping digests instead of tokens bounds the memory used by each cache entry, whatever the token size.
+ */
+public final class TokenDigest {
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(TokenDigest::newSha256);
+
+    private final byte[] digest;
+
+    private final int hashCode;
+
+    private TokenDigest(byte[] digest) {
+        this.digest = digest;
+        this.hashCode = Arrays.hashCode(digest);
+    }
+
+    /**
+     * @param token compact JWT
+     *
+     * @return digest of the token
+     */
+    public static TokenDigest of(String token) {
+        MessageDigest messageDigest = SHA_256.get();
+        messageDigest.reset();
+        return new TokenDigest(messageDigest.digest(token.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        return MessageDigest.isEqual(digest, ((TokenDigest) o).digest);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+}
@@ -0,0 +1,60 @@
+package it.cosenonjaviste.security.jwt.utils.verifiers;
+
+import it.cosenonjaviste.security.jwt.model.JwtAdapter;
+import it.cosenonjaviste.security.jwt.utils.ExpiringCache;
+import it.cosenonjaviste.security.jwt.utils.Preconditions;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded cache of already verified tokens, keyed by {@link TokenDigest}.
+ * <br>
+ * Each entry lives at most <tt>ttl</tt> and never beyond the token <em>exp</em> claim,
+ * so a cache hit is never more permissive than a full verification.
+ */
+public class VerifiedTokenCache {
+
+    private final ExpiringCache<TokenDigest, JwtAdapter> cache;
+
+    private final long ttlMillis;
+
+    /**
+     * @param maxSize maximum number of cached tokens
+     * @param ttl maximum time a verified token is trusted without a new verification
+     * @param timeUnit time unit of <tt>ttl</tt>
+     */
+    public VerifiedTokenCache(int maxSize, long ttl, TimeUnit timeUnit) {
+        Preconditions.checkArgument(ttl > 0, "Cache ttl must be greater than 0");
+        this.cache = new ExpiringCache<>(maxSize);
+        this.ttlMillis = timeUnit.toMillis(ttl);
+    }
+
+    /**
+     * @param digest token digest
+     *
+     * @return verified token or null if not cached or expired
+     */
+    public JwtAdapter get(TokenDigest digest) {
+        return cache.get(digest);
+    }
+
+    /**
+     * Cache a verified token until its <em>exp</em> or the configured ttl, whichever comes first
+     *
+     * @param digest token digest
+     * @param jwt verified token
+     */
+    public void put(TokenDigest digest, JwtAdapter jwt) {
+        long expiresAt = System.currentTimeMillis() + ttlMillis;
+        Date tokenExpiresAt = jwt.getDecodedJWT().getExpiresAt();
+        if (tokenExpiresAt != null) {
+            expiresAt = Math.min(expiresAt, tokenExpiresAt.getTime());
+        }
+        cache.put(digest, jwt, expiresAt);
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+}
@@ -3,6 +3,11 @@ package it.cosenonjaviste.security.jwt.valves;
 import it.cosenonjaviste.security.jwt.catalinawriters.ResponseWriter;
 import it.cosenonjaviste.security.jwt.model.AuthErrorResponse;
 import it.cosenonjaviste.security.jwt.model.JwtAdapter;
+import it.cosenonjaviste.security.jwt.utils.Preconditions;
+import it.cosenonjaviste.security.jwt.utils.verifiers.ClaimRules;
+import it.cosenonjaviste.security.jwt.utils.verifiers.RejectedTokenCache;
+import it.cosenonjaviste.security.jwt.utils.verifiers.VerifiedTokenCache;
+import org.apache.catalina.LifecycleException;
 import org.apache.catalina.connector.Request;
 import org.apache.catalina.connector.Response;
 import org.apache.catalina.realm.GenericPrincipal;
@@ -14,6 +19,14 @@ import org.apache.tomcat.util.descriptor.web.SecurityConstraint;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Template class for performing a JWT authentication on requester resource, if has securiy constraints associated.
@@ -29,21 +42,72 @@ public abstract class AbstractJwtTokenValve extends ValveBase {
 
 	protected String customRolesClaim;
 
+	protected int verifiedTokensCacheSize;
+
+	protected int verifiedTokensCacheTtl = 60;
+
+	protected int rejectedTokensCacheSize;
+
+	protected int rejectedTokensCacheTtl = 10;
+
+	protected boolean lazyClaims;
+
+	protected int principalsCacheSize;
+
+	protected int constraintsCacheSize;
+
+	protected Set<String> supportedAudiences = Collections.emptySet();
+
+	protected Set<String> requiredIssuers = Collections.emptySet();
+
+	protected Set<String> requiredClaims = Collections.emptySet();
+
+	protected Map<String, Set<String>> allowedClaimValues = Collections.emptyMap();
+
+	protected int leeway;
+
+	private PrincipalCache principalCache;
+
+	private ConstraintDecisionCache constraintCache;
+
+	@Override
+	protected void initInternal() throws LifecycleException {
+		super.initInternal();
+		this.principalCache = principalsCacheSize > 0 ? new PrincipalCache(principalsCacheSize) : null;
+		this.constraintCache = constraintsCacheSize > 0 ? new ConstraintDecisionCache(constraintsCacheSize) : null;
+	}
+
+	@Override
+	protected void stopInternal() throws LifecycleException {
+		super.stopInternal();
+		if (constraintCache != null) {
+			constraintCache.clear();
+		}
+	}
+
 	@Override
 	public void invoke(Request request, Response response) throws IOException,
 			ServletException {
 
-		SecurityConstraint[] constraints = this.container.getRealm()
-				.findSecurityConstraints(request, request.getContext());
+		boolean needsAuthentication = constraintCache != null
+				? constraintCache.needsAuthentication(request, this::needsAuthentication)
+				: needsAuthentication(request);
 
-		if ((constraints == null && !request.getContext().getPreemptiveAuthentication())
-				|| !hasAuthConstraint(constraints)) {
-			this.getNext().invoke(request, response);
-		} else {
+		if (needsAuthentication) {
 			handleAuthentication(request, response);
+		} else {
+			this.getNext().invoke(request, response);
 		}
 	}
 
+	private boolean needsAuthentication(Request request) {
+		SecurityConstraint[] constraints = this.container.getRealm()
+				.findSecurityConstraints(request, request.getContext());
+
+		return !((constraints == null && !request.getContext().getPreemptiveAuthentication())
+				|| !hasAuthConstraint(constraints));
+	}
+
 	private boolean hasAuthConstraint(SecurityConstraint[] constraints) {
 		if (constraints != null) {
 			boolean authConstraint = true;
@@ -60,11 +124,60 @@ public abstract class AbstractJwtTokenValve extends ValveBase {
 			throws IOException, ServletException;
 
 	protected void authenticateRequest(Request request, JwtAdapter jwt) {
-		GenericPrincipal principal = new GenericPrincipal(jwt.getUserId(), null, jwt.getRoles());
+		GenericPrincipal principal = principalCache != null
+				? principalCache.get(jwt.getUserId(), jwt.getRoles())
+				: new GenericPrincipal(jwt.getUserId(), null, jwt.getRoles());
 		request.setUserPrincipal(principal);
 		request.setAuthType("TOKEN");
 	}
 
+	/**
+	 * @return a new {@link VerifiedTokenCache} according to valve configuration, or null if caching is disabled
+	 */
+	protected VerifiedTokenCache newVerifiedTokenCache() {
+		if (verifiedTokensCacheSize > 0) {
+			return new VerifiedTokenCache(verifiedTokensCacheSize, verifiedTokensCacheTtl, TimeUnit.SECONDS);
+		} else {
+			return null;
+		}
+	}
+
+	/**
+	 * @return a new {@link RejectedTokenCache} according to valve configuration, or null if caching is disabled
+	 */
+	protected RejectedTokenCache newRejectedTokenCache() {
+		if (rejectedTokensCacheSize > 0) {
+			return new RejectedTokenCache(rejectedTokensCacheSize, rejectedTokensCacheTtl, TimeUnit.SECONDS);
+		} else {
+			return null;
+		}
+	}
+
+	/**
+	 * @return a new {@link ClaimRules.Builder} according to valve configuration
+	 */
+	protected ClaimRules.Builder newClaimRules() {
+		ClaimRules.Builder builder = ClaimRules.builder()
+				.issuers(requiredIssuers)
+				.audiences(supportedAudiences)
+				.requiredClaims(requiredClaims)
+				.leeway(leeway);
+		allowedClaimValues.forEach(builder::allowedValues);
+		return builder;
+	}
+
+	/**
+	 * @param values comma separated values
+	 *
+	 * @return trimmed, non empty values
+	 */
+	protected static Set<String> parseValues(String values) {
+		return Stream.of(values.split(","))
+				.map(String::trim)
+				.filter(value -> !value.isEmpty())
+				.collect(Collectors.toCollection(LinkedHashSet::new));
+	}
+
 	protected void sendUnauthorizedError(Request request, Response response, String message) throws IOException {
 		ResponseWriter.get(request.getHeader("accept")).write(response, HttpServletResponse.SC_UNAUTHORIZED, new AuthErrorResponse(message));
 	}
@@ -76,4 +189,134 @@ public abstract class AbstractJwtTokenValve extends ValveBase {
 	public void setCustomRolesClaim(String customRolesClaim) {
 		this.customRolesClaim = customRolesClaim;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Maximum number of verified tokens kept in memory, in order to skip signature verification
+	 * of tokens sent again and again. Default is 0 (cache disabled)
+	 *
+	 * @param verifiedTokensCacheSize max cached tokens
+	 */
+	public void setVerifiedTokensCacheSize(int verifiedTokensCacheSize) {
+		this.verifiedTokensCacheSize = verifiedTokensCacheSize;
+	}
+
+	/**
+	 * Maximum time, in seconds, a verified token stays in cache. Entries never outlive token <em>exp</em> claim
+	 *
+	 * @param verifiedTokensCacheTtl ttl in seconds
+	 */
+	public void setVerifiedTokensCacheTtl(int verifiedTokensCacheTtl) {
+		this.verifiedTokensCacheTtl = verifiedTokensCacheTtl;
+	}
+
+	/**
+	 * Maximum number of rejected tokens kept in memory, in order to reject at once clients sending
+	 * the same invalid token again and again. Default is 0 (cache disabled)
+	 *
+	 * @param rejectedTokensCacheSize max cached tokens
+	 */
+	public void setRejectedTokensCacheSize(int rejectedTokensCacheSize) {
+		this.rejectedTokensCacheSize = rejectedTokensCacheSize;
+	}
+
+	/**
+	 * Time, in seconds, a rejected token stays in cache. Expired tokens never leave the cache, unless it is full
+	 *
+	 * @param rejectedTokensCacheTtl ttl in seconds
+	 */
+	public void setRejectedTokensCacheTtl(int rejectedTokensCacheTtl) {
+		this.rejectedTokensCacheTtl = rejectedTokensCacheTtl;
+	}
+
+	/**
+	 * Decode only registered claims and user id and roles claims while authenticating a request: other claims
+	 * are decoded on first access. Default is false
+	 *
+	 * @param lazyClaims true for enabling lazy decoding
+	 */
+	public void setLazyClaims(boolean lazyClaims) {
+		this.lazyClaims = lazyClaims;
+	}
+
+	/**
+	 * Maximum number of principals kept in memory, so that requests of the same user with the same roles
+	 * share a single principal instance. Default is 0 (cache disabled)
+	 *
+	 * @param principalsCacheSize max cached principals
+	 */
+	public void setPrincipalsCacheSize(int principalsCacheSize) {
+		this.principalsCacheSize = principalsCacheSize;
+	}
+
+	/**
+	 * Maximum number of "needs authentication" decisions kept in memory for each context, keyed by request URI
+	 * and method, in order to skip security constraints matching. Decisions are dropped on context reload.
+	 * Default is 0 (cache disabled)
+	 *
+	 * @param constraintsCacheSize max cached decisions per context
+	 */
+	public void setConstraintsCacheSize(int constraintsCacheSize) {
+		this.constraintsCacheSize = constraintsCacheSize;
+	}
+
+	/**
+	 * Comma separated list of allowed <em>aud</em> values: tokens must contain at least one of them.
+	 * Default is empty (no validation)
+	 *
+	 * @param supportedAudiences allowed audiences
+	 */
+	public void setSupportedAudiences(String supportedAudiences) {
+		Preconditions.checkArgument(supportedAudiences != null, "supportedAudiences cannot be null");
+		this.supportedAudiences = parseValues(supportedAudiences);
+	}
+
+	/**
+	 * Comma separated list of allowed <em>iss</em> values. Default is empty (no validation)
+	 *
+	 * @param requiredIssuers allowed issuers
+	 */
+	public void setRequiredIssuers(String requiredIssuers) {
+		Preconditions.checkArgument(requiredIssuers != null, "requiredIssuers cannot be null");
+		this.requiredIssuers = parseValues(requiredIssuers);
+	}
+
+	/**
+	 * Comma separated list of claims every token must contain, e.g. <tt>azp,typ</tt>. Default is empty
+	 *
+	 * @param requiredClaims required claim names
+	 */
+	public void setRequiredClaims(String requiredClaims) {
+		Preconditions.checkArgument(requiredClaims != null, "requiredClaims cannot be null");
+		this.requiredClaims = parseValues(requiredClaims);
+	}
+
+	/**
+	 * Allowed values of claims, as semicolon separated <tt>claim=value1,value2</tt> pairs,
+	 * e.g. <tt>typ=Bearer;azp=web,mobile</tt>. Array claims must contain at least one allowed value.
+	 * Missing claims are allowed, unless required. Default is empty
+	 *
+	 * @param allowedClaimValues allowed values by claim
+	 */
+	public void setAllowedClaimValues(String allowedClaimValues) {
+		Preconditions.checkArgument(allowedClaimValues != null, "allowedClaimValues cannot be null");
+		Map<String, Set<String>> allowed = new LinkedHashMap<>();
+		for (String pair : allowedClaimValues.split(";")) {
+			if (pair.trim().isEmpty()) {
+				continue;
+			}
+			int separator = pair.indexOf('=');
+			Preconditions.checkArgument(separator > 0, "Invalid allowed claim values '" + pair + "'");
+			allowed.put(pair.substring(0, separator).trim(), parseValues(pair.substring(separator + 1)));
+		}
+		this.allowedClaimValues = allowed;
+	}
+
+	/**
+	 * Tolerated clock skew, in seconds, when checking <em>exp</em>, <em>nbf</em> and <em>iat</em> claims. Default is 0
+	 *
+	 * @param leeway leeway in seconds
+	 */
+	public void setLeeway(int leeway) {
+		this.leeway = leeway;
+	}
+}
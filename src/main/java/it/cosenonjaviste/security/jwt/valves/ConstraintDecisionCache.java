@@ -0,0 +1,141 @@
+package it.cosenonjaviste.security.jwt.valves;
+
+import it.cosenonjaviste.security.jwt.utils.ExpiringCache;
+import org.apache.catalina.Context;
+import org.apache.catalina.Lifecycle;
+import org.apache.catalina.LifecycleEvent;
+import org.apache.catalina.LifecycleListener;
+import org.apache.catalina.connector.Request;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Bounded cache of "needs authentication" decisions, keyed by context, decoded request URI and HTTP method.
+ * <br>
+ * Security constraints of a context only change when it is (re)started, so decisions of a context are dropped
+ * whenever it starts, stops or is destroyed.
+ */
+final class ConstraintDecisionCache {
+
+    private final int maxSize;
+
+    private final Map<Context, ContextDecisions> contexts = new ConcurrentHashMap<>();
+
+    /**
+     * @param maxSize maximum number of cached decisions per context
+     */
+    ConstraintDecisionCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @param request current request
+     * @param decision computes the decision if not cached
+     *
+     * @return true if request requires authentication
+     */
+    boolean needsAuthentication(Request request, Predicate<Request> decision) {
+        Context context = request.getContext();
+        String uri = request.getDecodedRequestURI();
+        String method = request.getMethod();
+        if (context == null || uri == null || method == null) {
+            return decision.test(request);
+        }
+
+        Key key = new Key(uri, method);
+        ExpiringCache<Key, Boolean> decisions = decisions(context);
+        Boolean needsAuthentication = decisions.get(key);
+        if (needsAuthentication == null) {
+            needsAuthentication = decision.test(request);
+            decisions.put(key, needsAuthentication, Long.MAX_VALUE);
+        }
+        return needsAuthentication;
+    }
+
+    /**
+     * Drop all decisions and stop listening to context lifecycle events
+     */
+    void clear() {
+        for (Context context : contexts.keySet()) {
+            ContextDecisions removed = contexts.remove(context);
+            if (removed != null) {
+                context.removeLifecycleListener(removed);
+            }
+        }
+    }
+
+    private ExpiringCache<Key, Boolean> decisions(Context context) {
+        ContextDecisions decisions = contexts.get(context);
+        if (decisions == null) {
+            ContextDecisions created = new ContextDecisions(context);
+            decisions = contexts.putIfAbsent(context, created);
+            if (decisions == null) {
+                context.addLifecycleListener(created);
+                decisions = created;
+            }
+        }
+        return decisions.cache;
+    }
+
+    private final class ContextDecisions implements LifecycleListener {
+
+        private final Context context;
+
+        private final ExpiringCache<Key, Boolean> cache = new ExpiringCache<>(maxSize);
+
+        private ContextDecisions(Context context) {
+            this.context = context;
+        }
+
+        @Override
+        public void lifecycleEvent(LifecycleEvent event) {
+            switch (event.getType()) {
+                case Lifecycle.START_EVENT:
+                case Lifecycle.STOP_EVENT:
+                    cache.clear();
+                    break;
+                case Lifecycle.AFTER_DESTROY_EVENT:
+                    cache.clear();
+                    contexts.remove(context, this);
+                    context.removeLifecycleListener(this);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private static final class Key {
+
+        private final String uri;
+
+        private final String method;
+
+        private final int hashCode;
+
+        private Key(String uri, String method) {
+            this.uri = uri;
+            this.method = method;
+            this.hashCode = 31 * uri.hashCode() + method.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return hashCode == key.hashCode && uri.equals(key.uri) && method.equals(key.method);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package it.cosenonjaviste.security.jwt.valves;
+
+import com.auth0.jwt.interfaces.ECDSAKeyProvider;
+import it.cosenonjaviste.security.jwt.utils.verifiers.JwtTokenVerifier;
+
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.util.function.Function;
+
+/**
+ * Perform a JWT authentication with tokens signed with ECDSA (<em>ES256</em>, <em>ES384</em>, <em>ES512</em>),
+ * verified with EC certificates of a keystore.
+ * <br>
+ * ECDSA keys are much smaller than RSA keys of the same strength, and signing with them is much cheaper.
+ */
+public class EcdsaJwtTokenValve extends KeystoreJwtTokenValve {
+
+    @Override
+    protected JwtTokenVerifier createTokenVerifier(String customUserIdClaim, String customRolesClaim) {
+        return JwtTokenVerifier.create(newEcdsaKeyProvider(publicKeys(ECPublicKey.class, key -> true)), customUserIdClaim, customRolesClaim);
+    }
+
+    private ECDSAKeyProvider newEcdsaKeyProvider(Function<String, ECPublicKey> publicKeys) {
+        return new ECDSAKeyProvider() {
+            @Override
+            public ECPublicKey getPublicKeyById(String keyId) {
+                return publicKeys.apply(keyId);
+            }
+
+            @Override
+            public ECPrivateKey getPrivateKey() {
+                return null;
+            }
+
+            @Override
+            public String getPrivateKeyId() {
+                return null;
+            }
+        };
+    }
+}
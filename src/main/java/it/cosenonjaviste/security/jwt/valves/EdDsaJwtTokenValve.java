@@ -0,0 +1,22 @@
+package it.cosenonjaviste.security.jwt.valves;
+
+import it.cosenonjaviste.security.jwt.utils.verifiers.EdDsaAlgorithm;
+import it.cosenonjaviste.security.jwt.utils.verifiers.JwtTokenVerifier;
+
+import java.security.PublicKey;
+
+/**
+ * Perform a JWT authentication with tokens signed with EdDSA (<em>alg</em> <tt>EdDSA</tt>), verified with Ed25519
+ * certificates of a keystore. Requires Java 15 or later, see {@link EdDsaAlgorithm}
+ */
+public class EdDsaJwtTokenValve extends KeystoreJwtTokenValve {
+
+    @Override
+    protected JwtTokenVerifier createTokenVerifier(String customUserIdClaim, String customRolesClaim) {
+        return JwtTokenVerifier.createEdDsa(publicKeys(PublicKey.class, EdDsaJwtTokenValve::isEd25519), customUserIdClaim, customRolesClaim);
+    }
+
+    private static boolean isEd25519(PublicKey key) {
+        return "Ed25519".equals(key.getAlgorithm()) || EdDsaAlgorithm.NAME.equals(key.getAlgorithm());
+    }
+}
@@ -4,14 +4,32 @@ import it.cosenonjaviste.security.jwt.model.JwtAdapter;
 import it.cosenonjaviste.security.jwt.utils.JwtConstants;
 import it.cosenonjaviste.security.jwt.utils.JwtTokenBuilder;
 import it.cosenonjaviste.security.jwt.utils.verifiers.JwtTokenVerifier;
+import org.apache.catalina.LifecycleException;
 import org.apache.catalina.connector.Response;
 
+import java.util.concurrent.TimeUnit;
+
 public class HmacJwtTokenValve extends JwtTokenValve {
 
     private String secret;
 
     private boolean updateExpire;
 
+    private int renewThreshold;
+
+    private double renewThresholdRatio;
+
+    private int renewedTokensCacheSize = 1000;
+
+    private TokenRenewal tokenRenewal;
+
+    @Override
+    protected void initInternal() throws LifecycleException {
+        super.initInternal();
+        this.tokenRenewal = new TokenRenewal(TimeUnit.SECONDS.toMillis(renewThreshold), renewThresholdRatio,
+                renewedTokensCacheSize, JwtTokenBuilder::renew);
+    }
+
     @Override
     protected JwtTokenVerifier createTokenVerifier(String customUserIdClaim, String customRolesClaim) {
         return JwtTokenVerifier.create(secret, customUserIdClaim, customRolesClaim);
@@ -24,8 +42,10 @@ public class HmacJwtTokenValve extends JwtTokenValve {
     }
 
     private void updateToken(JwtAdapter jwtAdapter, Response response) {
-        String newToken = JwtTokenBuilder.from(jwtAdapter).build();
-        response.setHeader(JwtConstants.AUTH_HEADER, newToken);
+        String newToken = tokenRenewal.renew(jwtAdapter);
+        if (newToken != null) {
+            response.setHeader(JwtConstants.AUTH_HEADER, newToken);
+        }
     }
 
     public void setSecret(String secret) {
@@ -33,12 +53,42 @@ public class HmacJwtTokenValve extends JwtTokenValve {
     }
 
     /**
-     * Updates expire time on each request
+     * Updates expire time on each request, or only when token is about to expire if a renew threshold is set
      *
-     * @param updateExpire true to enable token update on each request
+     * @param updateExpire true to enable token update
      */
     public void setUpdateExpire(boolean updateExpire) {
         this.updateExpire = updateExpire;
     }
 
+    /**
+     * With <tt>updateExpire</tt>, renew only tokens expiring within this number of seconds. Default is 0 (renew on each request,
+     * unless <tt>renewThresholdRatio</tt> is set)
+     *
+     * @param renewThreshold threshold in seconds
+     */
+    public void setRenewThreshold(int renewThreshold) {
+        this.renewThreshold = renewThreshold;
+    }
+
+    /**
+     * With <tt>updateExpire</tt>, renew only tokens whose remaining lifetime is less than this fraction of their
+     * whole lifetime, e.g. 0.5. Default is 0 (renew on each request, unless <tt>renewThreshold</tt> is set)
+     *
+     * @param renewThresholdRatio fraction of token lifetime, between 0 and 1
+     */
+    public void setRenewThresholdRatio(double renewThresholdRatio) {
+        this.renewThresholdRatio = renewThresholdRatio;
+    }
+
+    /**
+     * Maximum number of renewed tokens kept in memory, so that requests carrying the same token within its renewal
+     * window get back the same renewed token. Used only with a renew threshold. Default is 1000, 0 disables the cache
+     *
+     * @param renewedTokensCacheSize max cached tokens
+     */
+    public void setRenewedTokensCacheSize(int renewedTokensCacheSize) {
+        this.renewedTokensCacheSize = renewedTokensCacheSize;
+    }
+
 }
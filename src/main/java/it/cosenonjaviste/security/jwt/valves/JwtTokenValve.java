@@ -1,8 +1,9 @@
 package it.cosenonjaviste.security.jwt.valves;
 
 import com.auth0.jwt.exceptions.JWTVerificationException;
+import it.cosenonjaviste.security.jwt.exceptions.RejectedTokenException;
+import it.cosenonjaviste.security.jwt.model.AuthErrorResponse;
 import it.cosenonjaviste.security.jwt.model.JwtAdapter;
-import it.cosenonjaviste.security.jwt.utils.JwtConstants;
 import it.cosenonjaviste.security.jwt.utils.verifiers.JwtTokenVerifier;
 import org.apache.catalina.LifecycleException;
 import org.apache.catalina.connector.Request;
@@ -11,10 +12,8 @@ import org.apache.juli.logging.Log;
 import org.apache.juli.logging.LogFactory;
 
 import javax.servlet.ServletException;
-import javax.servlet.http.Cookie;
 import java.io.IOException;
 import java.nio.file.attribute.UserPrincipal;
-import java.util.stream.Stream;
 
 /**
  * Perform a JWT authentication on requester resource.
@@ -40,10 +39,16 @@ public abstract class JwtTokenValve extends AbstractJwtTokenValve {
 
 	private String cookieName;
 
+	private TokenSource[] tokenSources = TokenSource.DEFAULTS;
+
 	@Override
 	protected void initInternal() throws LifecycleException {
 		super.initInternal();
-		this.tokenVerifier = createTokenVerifier(customUserIdClaim, customRolesClaim);
+		this.tokenVerifier = createTokenVerifier(customUserIdClaim, customRolesClaim)
+				.withCache(newVerifiedTokenCache())
+				.withRejectedCache(newRejectedTokenCache())
+				.withClaimRules(newClaimRules().build())
+				.withLazyClaims(lazyClaims);
 	}
 
 	/**
@@ -67,40 +72,27 @@ public abstract class JwtTokenValve extends AbstractJwtTokenValve {
 				authenticateRequest(request, jwt);
 				beforeNext(response, jwt);
 				this.getNext().invoke(request, response);
+			} catch (RejectedTokenException e) {
+				LOG.debug(e.getMessage());
+				sendUnauthorizedError(request, response, "Token not valid. Cause: " + e.getMessage());
 			} catch (JWTVerificationException e) {
 				LOG.error(e.getMessage());
 				sendUnauthorizedError(request, response, "Token not valid. Cause: " + e.getMessage());
 			}
 		} else {
-			sendUnauthorizedError(request, response, "Please login first");
+			sendUnauthorizedError(request, response, AuthErrorResponse.LOGIN_REQUIRED);
 		}
 	}
 
 	protected void beforeNext(Response response, JwtAdapter jwt) {
 	}
 
-	private String getCookieValueByName(Request request, String name){
-		if (name == null) {
-			return null;
-		}
-
-		Cookie[] cookies = request.getCookies();
-		if (cookies != null) {
-			return Stream.of(cookies)
-					.filter(cookie -> cookie.getName().equalsIgnoreCase(name))
-					.findFirst()
-					.map(Cookie::getValue)
-					.orElse(null);
-		}
-	    return null;
-	}
-
 	/**
-	 * Look for authentication token with following priorities
+	 * Look for authentication token in configured <em>tokenSources</em>, by default with following priorities
 	 * <ul>
 	 *     <li>in request header <em>X-Auth</em></li>
 	 *     <li>in request header <em>Authorization</em> (value preceded by <em>Bearer</em>)</li>
-	 *     <li>in request query parameter <em>access_token</em></li>
+	 *     <li>in query string parameter <em>access_token</em></li>
 	 *     <li>in a cookie configured by property <em>cookieName</em></li>
 	 * </ul>
 	 *
@@ -108,23 +100,29 @@ public abstract class JwtTokenValve extends AbstractJwtTokenValve {
 	 * @return token or null
 	 */
 	private String getToken(Request request) {
-		String xAuthToken = request.getHeader(JwtConstants.AUTH_HEADER);
-		if (xAuthToken == null) {
-			String bearerToken = request.getHeader("Authorization");
-			if (bearerToken != null && bearerToken.toLowerCase().startsWith("bearer ")) {
-				return bearerToken.replaceAll("(?i)Bearer (.*)", "$1");
-			} else if (request.getParameter(JwtConstants.AUTH_PARAM) != null) {
-				return request.getParameter(JwtConstants.AUTH_PARAM);
-			} else {
-				return getCookieValueByName(request, cookieName);
+		for (TokenSource tokenSource : tokenSources) {
+			String token = tokenSource.extract(request, cookieName);
+			if (token != null) {
+				return token;
 			}
-		} else {
-			return xAuthToken;
 		}
+		return null;
 	}
 
 	public void setCookieName(String cookieName) {
 		this.cookieName = cookieName;
 	}
 
+	/**
+	 * Comma separated list of places where token is looked for, in priority order. Allowed values are
+	 * <em>header</em>, <em>bearer</em>, <em>query</em>, <em>cookie</em> and <em>body</em>.
+	 * Default is <tt>header,bearer,query,cookie</tt>: <em>body</em> must be explicitly enabled
+	 * since it makes Tomcat read and parse the whole request body
+	 *
+	 * @param tokenSources token sources
+	 */
+	public void setTokenSources(String tokenSources) {
+		this.tokenSources = TokenSource.parse(tokenSources);
+	}
+
 }
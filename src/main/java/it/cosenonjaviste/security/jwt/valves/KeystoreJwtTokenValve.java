@@ -0,0 +1,135 @@
+package it.cosenonjaviste.security.jwt.valves;
+
+import it.cosenonjaviste.security.jwt.exceptions.ValveInitializationException;
+import it.cosenonjaviste.security.jwt.utils.Preconditions;
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Template class for valves verifying tokens with public keys of a keystore.
+ * <br>
+ * Tokens are verified with the certificate of <tt>keyPairsAlias</tt> (by default, the first alias of the keystore).
+ * Other certificates of the keystore, e.g. of partners or CAs, are never trusted unless listed in
+ * <tt>trustedAliases</tt>: then tokens whose <em>kid</em> is one of those aliases are verified with its certificate,
+ * any other token with the <tt>keyPairsAlias</tt> one. Keys are read once, on valve init.
+ */
+public abstract class KeystoreJwtTokenValve extends JwtTokenValve {
+
+    private static final Log LOG = LogFactory.getLog(KeystoreJwtTokenValve.class);
+
+    private String keystorePath;
+
+    private String keystorePassword;
+
+    private String keyPairsAlias;
+
+    private Set<String> trustedAliases = Collections.emptySet();
+
+    private KeyStore keyStore;
+
+    /**
+     * @param keyType expected public key type
+     * @param accept additional check on public keys, e.g. on key algorithm
+     * @param <K> public key type
+     *
+     * @throws ValveInitializationException if the keystore cannot be read, or the default alias is missing or has another key type
+     *
+     * @return keys of <tt>keyType</tt> by trusted alias, with the default alias key as fallback
+     */
+    protected <K extends PublicKey> Function<String, K> publicKeys(Class<K> keyType, Predicate<? super K> accept) {
+        try {
+            KeyStore keyStore = getKeyStore();
+            String alias = keyPairsAlias == null ? keyStore.aliases().nextElement() : keyPairsAlias;
+            Certificate certificate = keyStore.getCertificate(alias);
+            Preconditions.checkValveInit(certificate != null, "Alias '" + alias + "' not found in keystore");
+            PublicKey publicKey = certificate.getPublicKey();
+            Preconditions.checkValveInit(keyType.isInstance(publicKey) && accept.test(keyType.cast(publicKey)),
+                    "Alias '" + alias + "' has a " + publicKey.getAlgorithm() + " key, not supported by " + getClass().getSimpleName());
+            K defaultKey = keyType.cast(publicKey);
+
+            if (trustedAliases.isEmpty()) {
+                return kid -> defaultKey;
+            }
+            Map<String, K> keys = new HashMap<>();
+            for (String kid : trustedAliases) {
+                Certificate kidCertificate = keyStore.getCertificate(kid);
+                Preconditions.checkValveInit(kidCertificate != null, "Alias '" + kid + "' not found in keystore");
+                PublicKey kidKey = kidCertificate.getPublicKey();
+                Preconditions.checkValveInit(keyType.isInstance(kidKey) && accept.test(keyType.cast(kidKey)),
+                        "Alias '" + kid + "' has a " + kidKey.getAlgorithm() + " key, not supported by " + getClass().getSimpleName());
+                keys.put(kid, keyType.cast(kidKey));
+            }
+            Map<String, K> byKid = Collections.unmodifiableMap(keys);
+            return kid -> kid != null ? byKid.getOrDefault(kid, defaultKey) : defaultKey;
+        } catch (KeyStoreException e) {
+            LOG.error(e.getMessage(), e);
+            throw new ValveInitializationException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * If keystore is set from external call to {@link #setKeyStore}, keystorePath and keystorePassword will be ignored
+     *
+     * @return {@link KeyStore} instance
+     */
+    private KeyStore getKeyStore() {
+        if (keyStore == null) {
+            keyStore = loadKeyStore();
+        }
+        return keyStore;
+    }
+
+    private KeyStore loadKeyStore() {
+        try (InputStream in = new FileInputStream(keystorePath)) {
+            KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
+            keyStore.load(in, keystorePassword.toCharArray());
+
+            return keyStore;
+        } catch (KeyStoreException | IOException | CertificateException | NoSuchAlgorithmException e) {
+            LOG.error(e.getMessage(), e);
+            throw new ValveInitializationException(e.getMessage(), e);
+        }
+    }
+
+    public void setKeystorePath(String keystorePath) {
+        this.keystorePath = keystorePath;
+    }
+
+    public void setKeystorePassword(String keystorePassword) {
+        this.keystorePassword = keystorePassword;
+    }
+
+    public void setKeyPairsAlias(String keyPairsAlias) {
+        this.keyPairsAlias = keyPairsAlias;
+    }
+
+    /**
+     * Comma separated list of aliases whose certificate verifies tokens with the same <em>kid</em>.
+     * Default is empty: only <tt>keyPairsAlias</tt> certificate is trusted, whatever the token <em>kid</em>
+     *
+     * @param trustedAliases trusted aliases
+     */
+    public void setTrustedAliases(String trustedAliases) {
+        this.trustedAliases = parseValues(trustedAliases);
+    }
+
+    public void setKeyStore(KeyStore keyStore) {
+        this.keyStore = keyStore;
+    }
+}
@@ -0,0 +1,64 @@
+package it.cosenonjaviste.security.jwt.valves;
+
+import com.auth0.jwk.JwkException;
+import com.auth0.jwt.exceptions.AlgorithmMismatchException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import it.cosenonjaviste.security.jwt.model.JwtAdapter;
+import it.cosenonjaviste.security.jwt.utils.jwks.JwksKeys;
+import it.cosenonjaviste.security.jwt.utils.jwks.JwksRefresher;
+import it.cosenonjaviste.security.jwt.utils.jwks.OidcDiscovery;
+import it.cosenonjaviste.security.jwt.utils.verifiers.JwtTokenVerifier;
+
+/**
+ * Verification state of an OpenID Connect issuer: its keys and its token verifier, with claim rules of the issuer
+ */
+final class OidcIssuer {
+
+    private final OidcDiscovery discovery;
+
+    private final JwksKeys jwksKeys;
+
+    private final JwksRefresher jwksRefresher;
+
+    private final JwtTokenVerifier tokenVerifier;
+
+    /**
+     * @param discovery discovery document, may be null
+     * @param jwksKeys issuer keys
+     * @param jwksRefresher background refresher of keys, may be null
+     * @param tokenVerifier verifier using <tt>jwksKeys</tt>
+     */
+    OidcIssuer(OidcDiscovery discovery, JwksKeys jwksKeys, JwksRefresher jwksRefresher, JwtTokenVerifier tokenVerifier) {
+        this.discovery = discovery;
+        this.jwksKeys = jwksKeys;
+        this.jwksRefresher = jwksRefresher;
+        this.tokenVerifier = tokenVerifier;
+    }
+
+    void start() {
+        if (jwksRefresher != null) {
+            jwksRefresher.start();
+        }
+    }
+
+    void stop() {
+        if (jwksRefresher != null) {
+            jwksRefresher.stop();
+        }
+    }
+
+    DecodedJWT decode(String token) {
+        return tokenVerifier.decode(token);
+    }
+
+    JwtAdapter verify(DecodedJWT decodedJWT) throws JwkException {
+        OidcDiscovery.Metadata metadata = discovery != null ? discovery.current() : null;
+        if (metadata != null && !metadata.getSigningAlgorithms().isEmpty()
+                && !metadata.getSigningAlgorithms().contains(decodedJWT.getAlgorithm())) {
+            throw new AlgorithmMismatchException("Algorithm '" + decodedJWT.getAlgorithm() + "' not supported by issuer");
+        }
+        // fail fast with a JwkException if key is not available: key provider below will hit the same key set
+        jwksKeys.get(decodedJWT.getKeyId());
+        return tokenVerifier.verify(decodedJWT);
+    }
+}
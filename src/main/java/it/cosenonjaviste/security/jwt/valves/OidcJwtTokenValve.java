@@ -1,16 +1,22 @@
 package it.cosenonjaviste.security.jwt.valves;
 
-import com.auth0.jwk.*;
-import com.auth0.jwt.JWT;
+import com.auth0.jwk.JwkException;
 import com.auth0.jwt.exceptions.InvalidClaimException;
-import com.auth0.jwt.exceptions.JWTDecodeException;
 import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.auth0.jwt.impl.PublicClaims;
 import com.auth0.jwt.interfaces.DecodedJWT;
-import com.auth0.jwt.interfaces.RSAKeyProvider;
 import it.cosenonjaviste.security.jwt.exceptions.ValveInitializationException;
+import it.cosenonjaviste.security.jwt.model.AuthErrorResponse;
 import it.cosenonjaviste.security.jwt.model.JwtAdapter;
 import it.cosenonjaviste.security.jwt.utils.Preconditions;
+import it.cosenonjaviste.security.jwt.utils.jwks.HttpJwksSource;
+import it.cosenonjaviste.security.jwt.utils.jwks.JwksKeys;
+import it.cosenonjaviste.security.jwt.utils.jwks.JwksRefresher;
+import it.cosenonjaviste.security.jwt.utils.jwks.JwksSnapshotFile;
+import it.cosenonjaviste.security.jwt.utils.jwks.JwksSource;
+import it.cosenonjaviste.security.jwt.utils.jwks.OidcDiscovery;
+import it.cosenonjaviste.security.jwt.utils.verifiers.CachingVerifier;
+import it.cosenonjaviste.security.jwt.utils.verifiers.ClaimRules;
 import it.cosenonjaviste.security.jwt.utils.verifiers.JwtTokenVerifier;
 import org.apache.catalina.LifecycleException;
 import org.apache.catalina.connector.Request;
@@ -20,16 +26,20 @@ import org.apache.juli.logging.LogFactory;
 
 import javax.servlet.ServletException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.security.interfaces.RSAPrivateKey;
-import java.security.interfaces.RSAPublicKey;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
+import java.util.Properties;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * OpenId Connect idToken validation based on JWKS uri
@@ -40,15 +50,49 @@ public class OidcJwtTokenValve extends AbstractJwtTokenValve {
 
     private static final Log LOG = LogFactory.getLog(OidcJwtTokenValve.class);
 
+    private static final int MAX_UNKNOWN_KIDS = 1024;
+
+    private static final String ISSUER_SUFFIX = ".issuer";
+
     private URL issuerUrl;
 
-    private Set<String> supportedAudiences;
+    private URL discoveryUrl;
+
+    private String discoveryIssuer;
+
+    private int discoveryTtl;
 
     private int expiresIn;
 
     private TimeUnit timeUnit;
 
-    private JwkProvider urlJwkProvider;
+    private boolean jwksRefreshAhead;
+
+    private int jwksMaxStaleness;
+
+    private int jwksMissReloadInterval;
+
+    private int jwksUnknownKidsTtl;
+
+    private String jwksSnapshotFile;
+
+    private int jwksConnectTimeout;
+
+    private int jwksReadTimeout;
+
+    private boolean jwksHonorMaxAge;
+
+    private int jwksMinTtl;
+
+    private int jwksMaxTtl;
+
+    private String issuersFile;
+
+    private OidcIssuer defaultIssuer;
+
+    private Map<String, OidcIssuer> issuers;
+
+    private CachingVerifier cachingVerifier;
 
     public OidcJwtTokenValve() {
         defaults();
@@ -56,36 +100,167 @@ public class OidcJwtTokenValve extends AbstractJwtTokenValve {
 
     void defaults() {
         this.supportedAudiences = Collections.emptySet();
+        this.requiredIssuers = Collections.emptySet();
+        this.requiredClaims = Collections.emptySet();
+        this.allowedClaimValues = Collections.emptyMap();
+        this.leeway = 0;
         this.expiresIn = 60;
         this.timeUnit = TimeUnit.MINUTES;
         this.customUserIdClaim = PublicClaims.SUBJECT;
         this.customRolesClaim = "authorities";
+        this.jwksRefreshAhead = false;
+        this.jwksMaxStaleness = 3600;
+        this.jwksMissReloadInterval = 6;
+        this.jwksUnknownKidsTtl = 0;
+        this.jwksSnapshotFile = null;
+        this.jwksConnectTimeout = 5000;
+        this.jwksReadTimeout = 5000;
+        this.jwksHonorMaxAge = false;
+        this.jwksMinTtl = 60;
+        this.jwksMaxTtl = 86400;
+        this.discoveryUrl = null;
+        this.discoveryIssuer = null;
+        this.discoveryTtl = 86400;
+        this.issuersFile = null;
     }
 
     @Override
     protected void initInternal() throws LifecycleException {
         try {
             super.initInternal();
-            this.urlJwkProvider = new JwkProviderBuilder(issuerUrl)
-                    .cached(10, expiresIn, timeUnit)
-                    .build();
+            if (issuersFile != null) {
+                this.issuers = loadIssuers(Paths.get(issuersFile));
+            } else {
+                this.defaultIssuer = newIssuer(discoveryIssuer, issuerUrl, discoveryUrl, newClaimRules().build(),
+                        customUserIdClaim, customRolesClaim, jwksSnapshotFile);
+            }
+            this.cachingVerifier = new CachingVerifier(newVerifiedTokenCache(), newRejectedTokenCache());
         } catch (Exception e) {
             LOG.error(e.getMessage(), e);
             throw new ValveInitializationException(e.getMessage(), e);
         }
     }
 
+    private Map<String, OidcIssuer> loadIssuers(Path path) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(path)) {
+            properties.load(in);
+        }
+        Map<String, OidcIssuer> loaded = new HashMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            if (!key.endsWith(ISSUER_SUFFIX)) {
+                continue;
+            }
+            String name = key.substring(0, key.length() - ISSUER_SUFFIX.length());
+            String jwksUri = properties.getProperty(name + ".jwksUri");
+            String discoveryUri = properties.getProperty(name + ".discoveryUrl");
+            String audiences = properties.getProperty(name + ".supportedAudiences");
+            ClaimRules claimRules = newClaimRules()
+                    .audiences(audiences != null ? parseValues(audiences) : Collections.emptySet())
+                    .build();
+            String iss = properties.getProperty(key).trim();
+            OidcIssuer issuer = newIssuer(
+                    iss,
+                    jwksUri != null ? new URL(jwksUri) : null,
+                    discoveryUri != null ? OidcDiscovery.discoveryUrl(discoveryUri) : null,
+                    claimRules,
+                    properties.getProperty(name + ".customUserIdClaim", customUserIdClaim),
+                    properties.getProperty(name + ".customRolesClaim", customRolesClaim),
+                    jwksSnapshotFile != null ? jwksSnapshotFile + "." + name : null);
+            loaded.put(iss, issuer);
+        }
+        Preconditions.checkArgument(!loaded.isEmpty(), "No issuer found in " + path);
+        return Collections.unmodifiableMap(loaded);
+    }
+
+    private OidcIssuer newIssuer(String iss, URL jwksUri, URL discoveryUri, ClaimRules claimRules,
+                                 String userIdClaim, String rolesClaim, String snapshotPath) {
+        OidcDiscovery discovery = null;
+        JwksSource jwksSource;
+        if (discoveryUri != null) {
+            discovery = new OidcDiscovery(discoveryUri, jwksConnectTimeout, jwksReadTimeout, discoveryTtl, TimeUnit.SECONDS);
+            if (iss != null) {
+                discovery.withIssuer(iss);
+            }
+            resolveDiscovery(discovery);
+            jwksSource = discovery.jwksSource(this::newHttpJwksSource);
+        } else {
+            Preconditions.checkArgument(jwksUri != null, "issuerUrl or discoveryUrl must be set");
+            jwksSource = newHttpJwksSource(jwksUri);
+        }
+        JwksSnapshotFile snapshotFile = snapshotPath != null ? new JwksSnapshotFile(Paths.get(snapshotPath)) : null;
+        if (snapshotFile != null) {
+            jwksSource = snapshotFile.persisting(jwksSource);
+        }
+        JwksKeys jwksKeys = new JwksKeys(jwksSource, expiresIn, timeUnit)
+                .withMissReloadInterval(jwksMissReloadInterval, TimeUnit.SECONDS);
+        if (jwksUnknownKidsTtl > 0) {
+            jwksKeys.withUnknownKidsCache(MAX_UNKNOWN_KIDS, jwksUnknownKidsTtl, TimeUnit.SECONDS);
+        }
+        if (snapshotFile != null) {
+            JwksSnapshotFile.Content snapshot = snapshotFile.read(timeUnit.toMillis(expiresIn) + TimeUnit.SECONDS.toMillis(jwksMaxStaleness));
+            if (snapshot != null) {
+                jwksKeys.seed(snapshot.getJwks(), snapshot.getLastModified());
+            }
+        }
+        JwksRefresher jwksRefresher = null;
+        if (jwksRefreshAhead) {
+            jwksKeys.withBackgroundRefresh(jwksMaxStaleness, TimeUnit.SECONDS);
+            jwksRefresher = new JwksRefresher(jwksKeys);
+            jwksRefresher.start();
+        } else if (jwksKeys.isLoaded()) {
+            JwksRefresher.revalidate(jwksKeys);
+        }
+        JwtTokenVerifier tokenVerifier = JwtTokenVerifier.create(jwksKeys.asKeyProvider(), userIdClaim, rolesClaim)
+                .withClaimRules(claimRules)
+                .withLazyClaims(lazyClaims);
+        return new OidcIssuer(discovery, jwksKeys, jwksRefresher, tokenVerifier);
+    }
+
+    private void resolveDiscovery(OidcDiscovery discovery) {
+        try {
+            discovery.get();
+        } catch (JwkException e) {
+            // keys loading will try again
+            LOG.error(e.getMessage(), e);
+        }
+    }
+
+    private HttpJwksSource newHttpJwksSource(URL jwksUri) {
+        HttpJwksSource httpJwksSource = new HttpJwksSource(jwksUri, jwksConnectTimeout, jwksReadTimeout);
+        if (jwksHonorMaxAge) {
+            httpJwksSource.withMaxAge(jwksMinTtl, jwksMaxTtl, TimeUnit.SECONDS);
+        }
+        return httpJwksSource;
+    }
+
+    @Override
+    protected void startInternal() throws LifecycleException {
+        super.startInternal();
+        for (OidcIssuer issuer : issuers()) {
+            issuer.start();
+        }
+    }
+
+    @Override
+    protected void stopInternal() throws LifecycleException {
+        for (OidcIssuer issuer : issuers()) {
+            issuer.stop();
+        }
+        super.stopInternal();
+    }
+
     @Override
     protected void handleAuthentication(Request request, Response response) throws IOException, ServletException {
         try {
-            Optional<DecodedJWT> optionalJwt = getJwtFrom(request);
-            if (optionalJwt.isPresent()) {
-                JwtAdapter jwtAdapter = verify(optionalJwt.get());
+            Optional<String> optionalToken = getTokenFrom(request);
+            if (optionalToken.isPresent()) {
+                JwtAdapter jwtAdapter = verify(optionalToken.get());
                 authenticateRequest(request, jwtAdapter);
 
                 this.getNext().invoke(request, response);
             } else {
-                sendUnauthorizedError(request, response, "Authorization token not provided");
+                sendUnauthorizedError(request, response, AuthErrorResponse.TOKEN_NOT_PROVIDED);
             }
         } catch (JwkException e) {
             LOG.error(e.getMessage(), e);
@@ -95,67 +270,85 @@ public class OidcJwtTokenValve extends AbstractJwtTokenValve {
         }
     }
 
-    private JwtAdapter verify(DecodedJWT decodedJWT) throws JwkException {
-        Jwk jwk = urlJwkProvider.get(decodedJWT.getKeyId());
-        JwtAdapter verified = JwtTokenVerifier.create(newRsaKeyProvider(jwk), customUserIdClaim, customRolesClaim)
-                .verify(decodedJWT);
-
-        if (!supportedAudiences.isEmpty()) {
-            String aud = decodedJWT.getClaim(PublicClaims.AUDIENCE).asString();
-            if (!supportedAudiences.contains(aud)) {
-                throw new InvalidClaimException("Audience claim value '" + aud + "' not supported");
-            }
-        }
-        return verified;
+    private JwtAdapter verify(String token) throws JwkException {
+        // a JwkException from key lookup is not a JWTVerificationException, so it is never cached as a rejection:
+        // the token is verified again once the issuer keys can be fetched
+        return cachingVerifier.verify(token, t -> verify(decode(t)));
     }
 
-    private RSAKeyProvider newRsaKeyProvider(Jwk jwk) {
-        return new RSAKeyProvider() {
-            @Override
-            public RSAPublicKey getPublicKeyById(String s) {
-                try {
-                    return (RSAPublicKey) jwk.getPublicKey();
-                } catch (InvalidPublicKeyException e) {
-                    throw new JWTDecodeException(e.getMessage(), e);
-                }
-            }
-
-            @Override
-            public RSAPrivateKey getPrivateKey() {
-                return null;
-            }
+    private DecodedJWT decode(String token) {
+        // with many issuers, claims to be decoded eagerly are not known until iss is read
+        return issuers != null ? JwtTokenVerifier.decodeToken(token) : defaultIssuer.decode(token);
+    }
 
-            @Override
-            public String getPrivateKeyId() {
-                return null;
-            }
-        };
+    private JwtAdapter verify(DecodedJWT decodedJWT) throws JwkException {
+        if (issuers == null) {
+            return defaultIssuer.verify(decodedJWT);
+        }
+        String iss = decodedJWT.getIssuer();
+        OidcIssuer issuer = iss != null ? issuers.get(iss) : null;
+        if (issuer == null) {
+            throw new InvalidClaimException("Issuer claim value '" + iss + "' not supported");
+        }
+        return issuer.verify(decodedJWT);
     }
 
-    private Optional<DecodedJWT> getJwtFrom(Request request) {
-        String bearerToken = request.getHeader("Authorization");
-        if (bearerToken != null && bearerToken.toLowerCase().startsWith("bearer ")) {
-            String jwt = bearerToken.replaceAll("(?i)Bearer (.*)", "$1");
-            if (!jwt.isEmpty()) {
-                return Optional.of(JWT.decode(jwt));
-            } else {
-                return Optional.empty();
-            }
-        } else {
-            return Optional.empty();
+    private Collection<OidcIssuer> issuers() {
+        if (issuers != null) {
+            return issuers.values();
         }
+        return defaultIssuer != null ? Collections.singleton(defaultIssuer) : Collections.emptySet();
+    }
+
+    private Optional<String> getTokenFrom(Request request) {
+        return Optional.ofNullable(TokenExtractor.bearer(request));
     }
 
     public void setIssuerUrl(String issuerUrl) throws MalformedURLException {
         this.issuerUrl = new URL(issuerUrl);
     }
 
-    public void setSupportedAudiences(String supportedAudiences) {
-        Preconditions.checkArgument(supportedAudiences != null, "supportedAudiences cannot be null");
-        String[] split = supportedAudiences.split(",");
-        this.supportedAudiences = Stream.of(split)
-                .map(String::trim)
-                .collect(Collectors.toSet());
+    /**
+     * Issuer url, or url of its <em>.well-known/openid-configuration</em> document: keys are loaded from
+     * the <em>jwks_uri</em> published in the document, and tokens signed with algorithms missing in its
+     * <em>id_token_signing_alg_values_supported</em> are rejected before any key lookup.
+     * A document whose <em>issuer</em> differs from the issuer url, trailing slash included, is never used.
+     * When set, <tt>issuerUrl</tt> is ignored
+     *
+     * @param discoveryUrl issuer or discovery document url
+     *
+     * @throws MalformedURLException if url is not valid
+     */
+    public void setDiscoveryUrl(String discoveryUrl) throws MalformedURLException {
+        this.discoveryUrl = OidcDiscovery.discoveryUrl(discoveryUrl);
+        this.discoveryIssuer = OidcDiscovery.issuer(discoveryUrl);
+    }
+
+    /**
+     * Time, in seconds, the discovery document is cached before loading it again, along with keys. Default is 86400
+     *
+     * @param discoveryTtl ttl in seconds
+     */
+    public void setDiscoveryTtl(int discoveryTtl) {
+        this.discoveryTtl = discoveryTtl;
+    }
+
+    /**
+     * Properties file describing many issuers, so that a single valve routes each token to its issuer
+     * by <em>iss</em> claim. Each issuer is described by keys with the same prefix, an arbitrary name:
+     * <ul>
+     *     <li><tt>name.issuer</tt>: expected <em>iss</em> claim value (required)</li>
+     *     <li><tt>name.jwksUri</tt> or <tt>name.discoveryUrl</tt>: where keys are loaded from (one is required)</li>
+     *     <li><tt>name.supportedAudiences</tt>: allowed <em>aud</em> values, comma separated</li>
+     *     <li><tt>name.customUserIdClaim</tt> and <tt>name.customRolesClaim</tt>: default to valve values</li>
+     * </ul>
+     * All other valve attributes apply to every issuer. When set, <tt>issuerUrl</tt>, <tt>discoveryUrl</tt> and
+     * <tt>supportedAudiences</tt> are ignored, and tokens from other issuers are rejected
+     *
+     * @param issuersFile issuers properties file path
+     */
+    public void setIssuersFile(String issuersFile) {
+        this.issuersFile = issuersFile;
     }
 
     public void setExpiresIn(int expiresIn) {
@@ -165,4 +358,100 @@ public class OidcJwtTokenValve extends AbstractJwtTokenValve {
     public void setTimeUnit(String timeUnit) {
         this.timeUnit = TimeUnit.valueOf(timeUnit);
     }
+
+    /**
+     * Load keys at startup and refresh them in background ahead of expiration, so that request threads
+     * never wait for the IDP when keys expire. Default is false
+     *
+     * @param jwksRefreshAhead true for enabling background refresh
+     */
+    public void setJwksRefreshAhead(boolean jwksRefreshAhead) {
+        this.jwksRefreshAhead = jwksRefreshAhead;
+    }
+
+    /**
+     * Time, in seconds, expired keys are still used while background refresh keeps failing. Default is 3600
+     *
+     * @param jwksMaxStaleness max staleness in seconds
+     */
+    public void setJwksMaxStaleness(int jwksMaxStaleness) {
+        this.jwksMaxStaleness = jwksMaxStaleness;
+    }
+
+    /**
+     * Minimum time, in seconds, between two key set reloads caused by tokens with an unknown <em>kid</em>,
+     * whatever the kid. Default is 6
+     *
+     * @param jwksMissReloadInterval min interval in seconds
+     */
+    public void setJwksMissReloadInterval(int jwksMissReloadInterval) {
+        this.jwksMissReloadInterval = jwksMissReloadInterval;
+    }
+
+    /**
+     * Time, in seconds, a <em>kid</em> still unknown after a reload is rejected without reloading keys.
+     * Default is 0 (disabled)
+     *
+     * @param jwksUnknownKidsTtl ttl in seconds
+     */
+    public void setJwksUnknownKidsTtl(int jwksUnknownKidsTtl) {
+        this.jwksUnknownKidsTtl = jwksUnknownKidsTtl;
+    }
+
+    /**
+     * Local file where the last loaded keys are stored, and read at startup for authenticating requests
+     * before keys are loaded again in background. Snapshots older than <tt>expiresIn</tt> plus
+     * <tt>jwksMaxStaleness</tt> are ignored. Default is none
+     *
+     * @param jwksSnapshotFile snapshot file path
+     */
+    public void setJwksSnapshotFile(String jwksSnapshotFile) {
+        this.jwksSnapshotFile = jwksSnapshotFile;
+    }
+
+    /**
+     * Timeout, in milliseconds, for connecting to the IDP when loading keys. Default is 5000
+     *
+     * @param jwksConnectTimeout connect timeout in millis
+     */
+    public void setJwksConnectTimeout(int jwksConnectTimeout) {
+        this.jwksConnectTimeout = jwksConnectTimeout;
+    }
+
+    /**
+     * Timeout, in milliseconds, for reading keys from the IDP. Default is 5000
+     *
+     * @param jwksReadTimeout read timeout in millis
+     */
+    public void setJwksReadTimeout(int jwksReadTimeout) {
+        this.jwksReadTimeout = jwksReadTimeout;
+    }
+
+    /**
+     * Keep keys for the <em>Cache-Control: max-age</em> sent by the IDP, bounded by <tt>jwksMinTtl</tt>
+     * and <tt>jwksMaxTtl</tt>, instead of <tt>expiresIn</tt>. Default is false
+     *
+     * @param jwksHonorMaxAge true for using max-age
+     */
+    public void setJwksHonorMaxAge(boolean jwksHonorMaxAge) {
+        this.jwksHonorMaxAge = jwksHonorMaxAge;
+    }
+
+    /**
+     * Minimum time, in seconds, keys are kept when <tt>jwksHonorMaxAge</tt> is enabled. Default is 60
+     *
+     * @param jwksMinTtl min ttl in seconds
+     */
+    public void setJwksMinTtl(int jwksMinTtl) {
+        this.jwksMinTtl = jwksMinTtl;
+    }
+
+    /**
+     * Maximum time, in seconds, keys are kept when <tt>jwksHonorMaxAge</tt> is enabled. Default is 86400
+     *
+     * @param jwksMaxTtl max ttl in seconds
+     */
+    public void setJwksMaxTtl(int jwksMaxTtl) {
+        this.jwksMaxTtl = jwksMaxTtl;
+    }
 }
@@ -0,0 +1,106 @@
+package it.cosenonjaviste.security.jwt.valves;
+
+import it.cosenonjaviste.security.jwt.utils.ExpiringCache;
+import org.apache.catalina.realm.GenericPrincipal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded cache of {@link GenericPrincipal}, keyed by user id and roles.
+ * <br>
+ * Principals only depend on these values, so the same immutable instance (and its sorted roles array)
+ * can be shared by all requests of a user. Role names are interned in a shared pool, since
+ * a handful of roles is usually spread among all users.
+ */
+final class PrincipalCache {
+
+    private static final int MAX_INTERNED_ROLES = 4096;
+
+    private final ExpiringCache<Key, GenericPrincipal> principals;
+
+    private final ConcurrentHashMap<String, String> rolesPool = new ConcurrentHashMap<>();
+
+    /**
+     * @param maxSize maximum number of cached principals
+     */
+    PrincipalCache(int maxSize) {
+        this.principals = new ExpiringCache<>(maxSize);
+    }
+
+    /**
+     * @param userId user id
+     * @param roles user roles, may be null
+     *
+     * @return cached principal, created if missing
+     */
+    GenericPrincipal get(String userId, List<String> roles) {
+        Key key = new Key(userId, roles);
+        GenericPrincipal principal = principals.get(key);
+        if (principal == null) {
+            principal = new GenericPrincipal(userId, null, intern(roles));
+            principals.put(key, principal, Long.MAX_VALUE);
+        }
+        return principal;
+    }
+
+    private List<String> intern(List<String> roles) {
+        if (roles == null) {
+            return null;
+        }
+        List<String> interned = new ArrayList<>(roles.size());
+        for (String role : roles) {
+            interned.add(intern(role));
+        }
+        return interned;
+    }
+
+    private String intern(String role) {
+        if (role == null) {
+            return null;
+        }
+        String interned = rolesPool.get(role);
+        if (interned != null) {
+            return interned;
+        }
+        if (rolesPool.size() >= MAX_INTERNED_ROLES) {
+            return role;
+        }
+        interned = rolesPool.putIfAbsent(role, role);
+        return interned != null ? interned : role;
+    }
+
+    private static final class Key {
+
+        private final String userId;
+
+        private final List<String> roles;
+
+        private final int hashCode;
+
+        private Key(String userId, List<String> roles) {
+            this.userId = userId;
+            this.roles = roles;
+            this.hashCode = 31 * Objects.hashCode(userId) + Objects.hashCode(roles);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return hashCode == key.hashCode && Objects.equals(userId, key.userId) && Objects.equals(roles, key.roles);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
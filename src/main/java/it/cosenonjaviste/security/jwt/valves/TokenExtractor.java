@@ -0,0 +1,252 @@
+package it.cosenonjaviste.security.jwt.valves;
+
+import org.apache.catalina.connector.Request;
+import org.apache.tomcat.util.buf.ByteChunk;
+import org.apache.tomcat.util.buf.MessageBytes;
+import org.apache.tomcat.util.http.MimeHeaders;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Token lookup working directly on raw coyote request headers and query string.
+ * <br>
+ * Values are scanned in place, no matter they are still bytes as read by the connector or already converted
+ * to strings: no lowercasing, no regular expression and no cookie parsing. Only the token itself is copied in a new
+ * {@link String}.
+ */
+final class TokenExtractor {
+
+    private static final String BEARER = "bearer";
+
+    private TokenExtractor() {
+    }
+
+    /**
+     * @param request current request
+     * @param name header name, case insensitive
+     *
+     * @return header value or null if not set
+     */
+    static String header(Request request, String name) {
+        MessageBytes value = headers(request).getValue(name);
+        return value == null || value.isNull() ? null : value.toString();
+    }
+
+    /**
+     * @param request current request
+     *
+     * @return value of <em>Authorization</em> header if sent with <em>Bearer</em> scheme, null otherwise
+     */
+    static String bearer(Request request) {
+        MessageBytes value = headers(request).getValue("authorization");
+        if (value == null || value.isNull()) {
+            return null;
+        }
+        return bearer(chars(value));
+    }
+
+    /**
+     * @param request current request
+     * @param cookieName cookie name, case insensitive
+     *
+     * @return value of the first cookie named <tt>cookieName</tt> or null if not sent
+     */
+    static String cookie(Request request, String cookieName) {
+        if (cookieName == null) {
+            return null;
+        }
+        MimeHeaders headers = headers(request);
+        int pos = headers.findHeader("cookie", 0);
+        while (pos >= 0) {
+            MessageBytes value = headers.getValue(pos);
+            if (!value.isNull()) {
+                String cookie = cookie(chars(value), cookieName);
+                if (cookie != null) {
+                    return cookie;
+                }
+            }
+            pos = headers.findHeader("cookie", pos + 1);
+        }
+        return null;
+    }
+
+    /**
+     * Look for a parameter in the raw query string only: unlike {@link Request#getParameter(String)}, request body
+     * is never read
+     *
+     * @param request current request
+     * @param name parameter name, case sensitive
+     *
+     * @return decoded value of the first non empty parameter named <tt>name</tt> or null if not sent
+     */
+    static String query(Request request, String name) {
+        MessageBytes queryString = request.getCoyoteRequest().queryString();
+        if (queryString == null || queryString.isNull()) {
+            return null;
+        }
+        return query(chars(queryString), name);
+    }
+
+    static String query(CharSequence value, String name) {
+        int length = value.length();
+        int pos = 0;
+        while (pos < length) {
+            int end = pos;
+            while (end < length && value.charAt(end) != '&') {
+                end++;
+            }
+            int nameEnd = pos + name.length();
+            if (nameEnd + 1 < end && value.charAt(nameEnd) == '=' && regionEquals(value, pos, name)) {
+                return urlDecode(value.subSequence(nameEnd + 1, end).toString());
+            }
+            pos = end + 1;
+        }
+        return null;
+    }
+
+    static String bearer(CharSequence value) {
+        int length = value.length();
+        int start = skipWhitespaces(value, 0, length);
+        if (!regionMatches(value, start, BEARER)) {
+            return null;
+        }
+        int tokenStart = start + BEARER.length();
+        if (tokenStart >= length || value.charAt(tokenStart) != ' ') {
+            return null;
+        }
+        tokenStart = skipWhitespaces(value, tokenStart, length);
+        int tokenEnd = trimEnd(value, tokenStart, length);
+        return tokenStart < tokenEnd ? value.subSequence(tokenStart, tokenEnd).toString() : null;
+    }
+
+    static String cookie(CharSequence value, String cookieName) {
+        int length = value.length();
+        int pos = 0;
+        while (pos < length) {
+            int end = pos;
+            while (end < length && value.charAt(end) != ';' && value.charAt(end) != ',') {
+                end++;
+            }
+            int nameStart = skipWhitespaces(value, pos, end);
+            int nameEnd = nameStart + cookieName.length();
+            if (regionMatches(value, nameStart, cookieName)) {
+                int equals = skipWhitespaces(value, nameEnd, end);
+                if (equals < end && value.charAt(equals) == '=') {
+                    int valueStart = skipWhitespaces(value, equals + 1, end);
+                    int valueEnd = trimEnd(value, valueStart, end);
+                    if (valueEnd - valueStart >= 2 && value.charAt(valueStart) == '"' && value.charAt(valueEnd - 1) == '"') {
+                        valueStart++;
+                        valueEnd--;
+                    }
+                    return value.subSequence(valueStart, valueEnd).toString();
+                }
+            }
+            pos = end + 1;
+        }
+        return null;
+    }
+
+    private static MimeHeaders headers(Request request) {
+        return request.getCoyoteRequest().getMimeHeaders();
+    }
+
+    private static CharSequence chars(MessageBytes value) {
+        if (value.getType() == MessageBytes.T_BYTES) {
+            ByteChunk bytes = value.getByteChunk();
+            return new AsciiSequence(bytes.getBuffer(), bytes.getStart(), bytes.getEnd());
+        }
+        return value.toString();
+    }
+
+    private static boolean regionMatches(CharSequence value, int from, String expected) {
+        if (from + expected.length() > value.length()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length(); i++) {
+            char c = value.charAt(from + i);
+            char e = expected.charAt(i);
+            if (c != e && Character.toLowerCase(c) != Character.toLowerCase(e)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean regionEquals(CharSequence value, int from, String expected) {
+        for (int i = 0; i < expected.length(); i++) {
+            if (value.charAt(from + i) != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String urlDecode(String value) {
+        if (value.indexOf('%') < 0 && value.indexOf('+') < 0) {
+            return value;
+        }
+        try {
+            return URLDecoder.decode(value, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            return value;
+        }
+    }
+
+    private static int skipWhitespaces(CharSequence value, int from, int to) {
+        while (from < to && isWhitespace(value.charAt(from))) {
+            from++;
+        }
+        return from;
+    }
+
+    private static int trimEnd(CharSequence value, int from, int to) {
+        while (to > from && isWhitespace(value.charAt(to - 1))) {
+            to--;
+        }
+        return to;
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t';
+    }
+
+    /**
+     * Read-only view of a byte range, decoded as ISO-8859-1 like Tomcat does for header values
+     */
+    private static final class AsciiSequence implements CharSequence {
+
+        private final byte[] buffer;
+
+        private final int start;
+
+        private final int end;
+
+        private AsciiSequence(byte[] buffer, int start, int end) {
+            this.buffer = buffer;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (buffer[start + index] & 0xff);
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return new AsciiSequence(buffer, start + from, start + to);
+        }
+
+        @Override
+        public String toString() {
+            return new String(buffer, start, end - start, StandardCharsets.ISO_8859_1);
+        }
+    }
+}
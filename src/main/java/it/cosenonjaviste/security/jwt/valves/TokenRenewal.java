@@ -0,0 +1,88 @@
+package it.cosenonjaviste.security.jwt.valves;
+
+import com.auth0.jwt.interfaces.DecodedJWT;
+import it.cosenonjaviste.security.jwt.model.JwtAdapter;
+import it.cosenonjaviste.security.jwt.utils.ExpiringCache;
+import it.cosenonjaviste.security.jwt.utils.Preconditions;
+import it.cosenonjaviste.security.jwt.utils.verifiers.TokenDigest;
+
+import java.util.Date;
+import java.util.function.Function;
+
+/**
+ * Sliding renewal policy of tokens.
+ * <br>
+ * With no threshold, every token is renewed, as soon as it is received. Otherwise a token is renewed only once
+ * its remaining lifetime drops below <tt>threshold</tt>, or below <tt>thresholdRatio</tt> of its whole lifetime
+ * (<em>exp</em> - <em>iat</em>): tokens without <em>exp</em> are never renewed.
+ * Renewed tokens are cached by source token until it expires, so that requests carrying the same token
+ * get back the same renewed token.
+ */
+final class TokenRenewal {
+
+    private final long thresholdMillis;
+
+    private final double thresholdRatio;
+
+    private final ExpiringCache<TokenDigest, String> renewedTokens;
+
+    private final Function<JwtAdapter, String> renewer;
+
+    /**
+     * @param thresholdMillis renew tokens expiring within this time, 0 to disable
+     * @param thresholdRatio renew tokens whose remaining lifetime is less than this fraction of their lifetime, 0 to disable
+     * @param cacheSize maximum number of cached renewed tokens, 0 to disable caching
+     * @param renewer token factory
+     */
+    TokenRenewal(long thresholdMillis, double thresholdRatio, int cacheSize, Function<JwtAdapter, String> renewer) {
+        Preconditions.checkArgument(thresholdMillis >= 0, "Renew threshold cannot be negative");
+        Preconditions.checkArgument(thresholdRatio >= 0 && thresholdRatio <= 1, "Renew threshold ratio must be between 0 and 1");
+        this.thresholdMillis = thresholdMillis;
+        this.thresholdRatio = thresholdRatio;
+        this.renewedTokens = cacheSize > 0 && !isAlways() ? new ExpiringCache<>(cacheSize) : null;
+        this.renewer = renewer;
+    }
+
+    /**
+     * @param jwt verified token
+     *
+     * @return renewed token, or null if <tt>jwt</tt> does not need to be renewed yet
+     */
+    String renew(JwtAdapter jwt) {
+        DecodedJWT decodedJWT = jwt.getDecodedJWT();
+        if (!needsRenewal(decodedJWT, System.currentTimeMillis())) {
+            return null;
+        }
+        if (renewedTokens == null) {
+            return renewer.apply(jwt);
+        }
+        TokenDigest digest = TokenDigest.of(decodedJWT.getToken());
+        String renewed = renewedTokens.get(digest);
+        if (renewed == null) {
+            renewed = renewer.apply(jwt);
+            renewedTokens.put(digest, renewed, decodedJWT.getExpiresAt().getTime());
+        }
+        return renewed;
+    }
+
+    boolean needsRenewal(DecodedJWT decodedJWT, long now) {
+        if (isAlways()) {
+            return true;
+        }
+        Date expiresAt = decodedJWT.getExpiresAt();
+        if (expiresAt == null) {
+            return false;
+        }
+        long remaining = expiresAt.getTime() - now;
+        if (thresholdMillis > 0 && remaining <= thresholdMillis) {
+            return true;
+        }
+        Date issuedAt = decodedJWT.getIssuedAt();
+        return thresholdRatio > 0 && issuedAt != null
+                && remaining <= (expiresAt.getTime() - issuedAt.getTime()) * thresholdRatio;
+    }
+
+    private boolean isAlways() {
+        return thresholdMillis == 0 && thresholdRatio == 0;
+    }
+}
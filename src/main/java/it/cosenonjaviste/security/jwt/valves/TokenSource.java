@@ -0,0 +1,86 @@
+package it.cosenonjaviste.security.jwt.valves;
+
+import it.cosenonjaviste.security.jwt.utils.JwtConstants;
+import it.cosenonjaviste.security.jwt.utils.Preconditions;
+import org.apache.catalina.connector.Request;
+
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Where {@link JwtTokenValve} looks for authentication token
+ */
+enum TokenSource {
+
+    /**
+     * request header <em>X-Auth</em>
+     */
+    HEADER {
+        @Override
+        String extract(Request request, String cookieName) {
+            return TokenExtractor.header(request, JwtConstants.AUTH_HEADER);
+        }
+    },
+
+    /**
+     * request header <em>Authorization</em>, value preceded by <em>Bearer</em>
+     */
+    BEARER {
+        @Override
+        String extract(Request request, String cookieName) {
+            return TokenExtractor.bearer(request);
+        }
+    },
+
+    /**
+     * query string parameter <em>access_token</em>
+     */
+    QUERY {
+        @Override
+        String extract(Request request, String cookieName) {
+            return TokenExtractor.query(request, JwtConstants.AUTH_PARAM);
+        }
+    },
+
+    /**
+     * cookie configured by property <em>cookieName</em>
+     */
+    COOKIE {
+        @Override
+        String extract(Request request, String cookieName) {
+            return TokenExtractor.cookie(request, cookieName);
+        }
+    },
+
+    /**
+     * request parameter <em>access_token</em>, either in query string or in a form body.
+     * <br>
+     * Beware: it makes Tomcat read and parse the whole request body before the application is invoked
+     */
+    BODY {
+        @Override
+        String extract(Request request, String cookieName) {
+            return request.getParameter(JwtConstants.AUTH_PARAM);
+        }
+    };
+
+    static final TokenSource[] DEFAULTS = {HEADER, BEARER, QUERY, COOKIE};
+
+    abstract String extract(Request request, String cookieName);
+
+    /**
+     * @param tokenSources comma separated, case insensitive, list of sources
+     *
+     * @return parsed sources, in the same order
+     */
+    static TokenSource[] parse(String tokenSources) {
+        Preconditions.checkArgument(tokenSources != null, "tokenSources cannot be null");
+        TokenSource[] parsed = Stream.of(tokenSources.split(","))
+                .map(String::trim)
+                .filter(source -> !source.isEmpty())
+                .map(source -> TokenSource.valueOf(source.toUpperCase(Locale.ROOT)))
+                .toArray(TokenSource[]::new);
+        Preconditions.checkArgument(parsed.length > 0, "tokenSources cannot be empty");
+        return parsed;
+    }
+}
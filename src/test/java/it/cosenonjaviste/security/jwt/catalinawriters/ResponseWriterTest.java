@@ -1,8 +1,22 @@
 package it.cosenonjaviste.security.jwt.catalinawriters;
 
+import it.cosenonjaviste.security.jwt.model.AuthErrorResponse;
+import org.apache.catalina.connector.Response;
 import org.junit.Test;
 
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 /**
  * Created by acomo on 18/06/18.
@@ -26,4 +40,81 @@ public class ResponseWriterTest {
         assertTrue(ResponseWriter.get("unknown/mimetype") instanceof HtmlResponseWriter);
         assertTrue(ResponseWriter.get("*/*") instanceof HtmlResponseWriter);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldShareWriters() {
+        assertSame(ResponseWriter.get("application/json"), ResponseWriter.get("application/json"));
+    }
+
+    @Test
+    public void shouldWriteJsonWithContentLength() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Response response = mockResponse(out);
+
+        ResponseWriter.get("application/json").write(response, 401, new AuthErrorResponse("Token è scaduto"));
+
+        byte[] expected = "{\"message\":\"Token è scaduto\"}".getBytes(StandardCharsets.UTF_8);
+        assertEquals(new String(expected, StandardCharsets.UTF_8), new String(out.toByteArray(), StandardCharsets.UTF_8));
+        verify(response).setStatus(401);
+        verify(response).setContentType("application/json;charset=UTF-8");
+        verify(response).setContentLength(expected.length);
+    }
+
+    @Test
+    public void shouldWriteCachedXmlBody() throws Exception {
+        ResponseWriter writer = ResponseWriter.get("application/xml");
+        byte[][] bodies = new byte[2][];
+        for (int i = 0; i < 2; i++) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            Response response = mockResponse(out);
+
+            writer.write(response, 401, new AuthErrorResponse(AuthErrorResponse.LOGIN_REQUIRED));
+
+            bodies[i] = out.toByteArray();
+            String xml = new String(bodies[i], StandardCharsets.UTF_8);
+            assertTrue(xml.startsWith("<?xml version=\"1.0\" encoding=\"UTF-8\""));
+            assertTrue(xml.contains("<AuthError>"));
+            assertTrue(xml.contains("<message>" + AuthErrorResponse.LOGIN_REQUIRED + "</message>"));
+            verify(response).setContentType("application/xml;charset=UTF-8");
+            verify(response).setContentLength(out.size());
+        }
+
+        assertArrayEquals(bodies[0], bodies[1]);
+        SerializingResponseWriter serializingWriter = (SerializingResponseWriter) writer;
+        assertSame(serializingWriter.errorBody(new AuthErrorResponse(AuthErrorResponse.LOGIN_REQUIRED)),
+                serializingWriter.errorBody(new AuthErrorResponse(AuthErrorResponse.LOGIN_REQUIRED)));
+    }
+
+    @Test
+    public void shouldCacheConstantMessagesOnly() throws Exception {
+        SerializingResponseWriter writer = (SerializingResponseWriter) ResponseWriter.get("application/json");
+        byte[] constant = writer.errorBody(new AuthErrorResponse(AuthErrorResponse.LOGIN_REQUIRED));
+        for (int i = 0; i < 300; i++) {
+            AuthErrorResponse oneOff = new AuthErrorResponse("The Token has expired on " + i);
+            assertNotSame(writer.errorBody(oneOff), writer.errorBody(oneOff));
+        }
+
+        assertSame(constant, writer.errorBody(new AuthErrorResponse(AuthErrorResponse.LOGIN_REQUIRED)));
+    }
+
+    private static Response mockResponse(ByteArrayOutputStream out) throws Exception {
+        Response response = mock(Response.class);
+        when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+
+            }
+
+            @Override
+            public void write(int b) {
+                out.write(b);
+            }
+        });
+        return response;
+    }
+}
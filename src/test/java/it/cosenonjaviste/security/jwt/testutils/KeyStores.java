@@ -1,5 +1,6 @@
 package it.cosenonjaviste.security.jwt.testutils;
 
+import com.auth0.jwt.interfaces.ECDSAKeyProvider;
 import com.auth0.jwt.interfaces.RSAKeyProvider;
 import org.apache.juli.logging.Log;
 import org.apache.juli.logging.LogFactory;
@@ -9,6 +10,8 @@ import java.security.KeyStore;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.UnrecoverableKeyException;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
 import java.security.interfaces.RSAPrivateKey;
 import java.security.interfaces.RSAPublicKey;
 
@@ -22,6 +25,22 @@ public class KeyStores {
 
     public static final String KEY_ID = "jwt";
 
+    public static final String EC_KEYSTORE = "keystore-ec.jks";
+
+    public static final String EC_KEY_ID = "es256";
+
+    /**
+     * Keystore with {@link #KEY_ID} key pair and {@link #PARTNER_KEY_ID} trusted certificate
+     */
+    public static final String TRUSTED_KEYSTORE = "keystore-trusted.jks";
+
+    /**
+     * Keystore with {@link #PARTNER_KEY_ID} key pair
+     */
+    public static final String PARTNER_KEYSTORE = "keystore-partner.jks";
+
+    public static final String PARTNER_KEY_ID = "partner";
+
     private KeyStores() {
         // prevent instance
     }
@@ -60,8 +79,45 @@ public class KeyStores {
         }
     }
 
+    /**
+     * @param alias alias of an EC key pair in {@link #EC_KEYSTORE}
+     *
+     * @return key provider signing with <tt>alias</tt> key and <tt>alias</tt> as <em>kid</em>
+     */
+    public static ECDSAKeyProvider retrieveEcKey(String alias) {
+        try {
+            KeyStore keyStore = get(EC_KEYSTORE);
+            ECPublicKey publicKey = (ECPublicKey) keyStore.getCertificate(alias).getPublicKey();
+            ECPrivateKey privateKey = (ECPrivateKey) keyStore.getKey(alias, KEYSTORE_PASSWORD.toCharArray());
+
+            return new ECDSAKeyProvider() {
+                @Override
+                public ECPublicKey getPublicKeyById(String keyId) {
+                    return publicKey;
+                }
+
+                @Override
+                public ECPrivateKey getPrivateKey() {
+                    return privateKey;
+                }
+
+                @Override
+                public String getPrivateKeyId() {
+                    return alias;
+                }
+            };
+        } catch (Exception e) {
+            LOG.error(e.getMessage(), e);
+            throw new RuntimeException(e);
+        }
+    }
+
     public static KeyStore get() {
-        try (InputStream in = KeyStores.class.getClassLoader().getResourceAsStream(KEYSTORE)) {
+        return get(KEYSTORE);
+    }
+
+    public static KeyStore get(String keystore) {
+        try (InputStream in = KeyStores.class.getClassLoader().getResourceAsStream(keystore)) {
             final KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
             keyStore.load(in, KEYSTORE_PASSWORD.toCharArray());
 
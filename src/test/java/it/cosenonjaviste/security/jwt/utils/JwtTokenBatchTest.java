@@ -0,0 +1,134 @@
+package it.cosenonjaviste.security.jwt.utils;
+
+import com.auth0.jwt.algorithms.Algorithm;
+import it.cosenonjaviste.security.jwt.model.JwtAdapter;
+import it.cosenonjaviste.security.jwt.utils.verifiers.JwtTokenVerifier;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+
+public class JwtTokenBatchTest {
+
+    private static final String SECRET = "my secret";
+
+    private final JwtTokenTemplate template = JwtTokenTemplate.builder(Algorithm.HMAC256(SECRET))
+            .generateJwtId(true)
+            .build();
+
+    @Test
+    public void shouldWriteTokensInSubjectsOrder() throws Exception {
+        List<String> users = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            users.add("user" + i);
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+        StringBuilder out = new StringBuilder();
+        try {
+            long count = JwtTokenBatch.create(template, pool, 300)
+                    .mint(users, user -> user, user -> Collections.singletonList("role1"), out);
+
+            assertEquals(1000, count);
+        } finally {
+            pool.shutdown();
+        }
+
+        String[] tokens = out.toString().split("\n");
+        assertEquals(1000, tokens.length);
+        JwtTokenVerifier verifier = JwtTokenVerifier.create(SECRET);
+        Set<String> jwtIds = new HashSet<>();
+        for (int i = 0; i < tokens.length; i++) {
+            JwtAdapter jwt = verifier.verify(tokens[i]);
+            assertEquals("user" + i, jwt.getUserId());
+            jwtIds.add(jwt.getDecodedJWT().getId());
+        }
+        assertEquals(1000, jwtIds.size());
+    }
+
+    @Test
+    public void shouldWriteTokensToStream() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = JwtTokenBatch.create(template).mint(Collections.singletonList("test"), user -> user,
+                user -> Collections.singletonList("role1"), out);
+
+        assertEquals(1, count);
+        String token = new String(out.toByteArray(), StandardCharsets.US_ASCII).trim();
+        assertEquals("test", JwtTokenVerifier.create(SECRET).verify(token).getUserId());
+    }
+
+    @Test
+    public void shouldCancelNextChunkWhenWriteFails() throws Exception {
+        List<Integer> users = new ArrayList<>();
+        for (int i = 0; i < 900; i++) {
+            users.add(i);
+        }
+        CountDownLatch failed = new CountDownLatch(1);
+        AtomicInteger minted = new AtomicInteger();
+        Function<Integer, String> userId = user -> {
+            if (user >= 300) {
+                minted.incrementAndGet();
+                awaitUninterruptibly(failed);
+            }
+            return "user" + user;
+        };
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            JwtTokenBatch.create(template, pool, 300).mint(users, userId, user -> Collections.singletonList("role1"),
+                    new Appendable() {
+                        @Override
+                        public Appendable append(CharSequence csq) throws IOException {
+                            throw new IOException("Disk full");
+                        }
+
+                        @Override
+                        public Appendable append(CharSequence csq, int start, int end) throws IOException {
+                            throw new IOException("Disk full");
+                        }
+
+                        @Override
+                        public Appendable append(char c) throws IOException {
+                            throw new IOException("Disk full");
+                        }
+                    });
+            fail();
+        } catch (IOException expected) {
+            failed.countDown();
+        }
+        assertTrue(pool.awaitQuiescence(10, TimeUnit.SECONDS));
+        pool.shutdown();
+
+        assertTrue("Minted " + minted.get() + " tokens of cancelled chunk", minted.get() < 300);
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    public void shouldGenerateRandomUuids() {
+        UUID uuid = UUID.fromString(JwtIds.next());
+
+        assertEquals(4, uuid.version());
+        assertEquals(2, uuid.variant());
+        assertNotEquals(JwtIds.next(), JwtIds.next());
+    }
+}
@@ -0,0 +1,68 @@
+package it.cosenonjaviste.security.jwt.utils;
+
+import com.auth0.jwt.algorithms.Algorithm;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares minting with a new {@link JwtTokenBuilder} per token and with a shared {@link JwtTokenTemplate}.
+ * <br>
+ * Run with <tt>mvn clean test-compile exec:java -Pbenchmark -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args=JwtTokenTemplateBenchmark</tt>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtTokenTemplateBenchmark {
+
+    private static final List<String> ROLES = Arrays.asList("role1", "role2");
+
+    private Algorithm algorithm;
+
+    private JwtTokenTemplate template;
+
+    @Setup
+    public void setUp() {
+        algorithm = Algorithm.HMAC256("a secret");
+        template = JwtTokenTemplate.builder(algorithm)
+                .issuer("https://issuer.example.com")
+                .audience("app1")
+                .expirySecs(1800)
+                .generateJwtId(true)
+                .build();
+    }
+
+    @Benchmark
+    public String builder() {
+        return JwtTokenBuilder.create(algorithm)
+                .userId("foo")
+                .roles(ROLES)
+                .claimEntry("iss", "https://issuer.example.com")
+                .claimEntry("aud", "app1")
+                .expirySecs(1800)
+                .generateJwtId(true)
+                .build();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String builderThreads() {
+        return builder();
+    }
+
+    @Benchmark
+    public String template() {
+        return template.mint("foo", ROLES);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String templateThreads() {
+        return template();
+    }
+}
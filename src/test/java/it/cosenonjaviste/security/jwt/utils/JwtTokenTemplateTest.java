@@ -0,0 +1,108 @@
+package it.cosenonjaviste.security.jwt.utils;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import it.cosenonjaviste.security.jwt.model.JwtAdapter;
+import it.cosenonjaviste.security.jwt.testutils.KeyStores;
+import it.cosenonjaviste.security.jwt.utils.verifiers.JwtTokenVerifier;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class JwtTokenTemplateTest {
+
+    private static final String SECRET = "my secret";
+
+    private final JwtTokenTemplate template = JwtTokenTemplate.builder(Algorithm.HMAC256(SECRET))
+            .issuer("https://issuer.example.com")
+            .audience("app1", "app2")
+            .claimEntry("tenant", "acme")
+            .expirySecs(600)
+            .notValidBeforeLeeway(30)
+            .generateJwtId(true)
+            .build();
+
+    @Test
+    public void shouldMintVerifiableTokens() {
+        String token = template.mint("test", Arrays.asList("role1", "role2"), Collections.singletonMap("score", 1.5));
+
+        JwtAdapter jwt = JwtTokenVerifier.create(SECRET).verify(token);
+        DecodedJWT decodedJWT = jwt.getDecodedJWT();
+
+        assertEquals("test", jwt.getUserId());
+        assertEquals(Arrays.asList("role1", "role2"), jwt.getRoles());
+        assertEquals("https://issuer.example.com", decodedJWT.getIssuer());
+        assertEquals(Arrays.asList("app1", "app2"), decodedJWT.getAudience());
+        assertEquals("acme", decodedJWT.getClaim("tenant").asString());
+        assertEquals(1.5, decodedJWT.getClaim("score").asDouble(), 0);
+        assertEquals("JWT", decodedJWT.getType());
+        assertNotNull(decodedJWT.getId());
+
+        long iat = decodedJWT.getClaim("iat").asLong();
+        assertEquals(iat + 600, decodedJWT.getClaim("exp").asLong().longValue());
+        assertEquals(iat - 30, decodedJWT.getClaim("nbf").asLong().longValue());
+    }
+
+    @Test
+    public void shouldBeRenewableByBuilder() {
+        String token = template.mint("test", Collections.singletonList("role1"));
+
+        String renewed = JwtTokenBuilder.from(token, SECRET).build();
+
+        assertEquals("acme", JWT.decode(renewed).getClaim("tenant").asString());
+    }
+
+    @Test
+    public void shouldAddKeyIdOfAlgorithm() {
+        Algorithm algorithm = Algorithm.RSA256(KeyStores.retrieveKey());
+        JwtTokenTemplate rsaTemplate = JwtTokenTemplate.builder(algorithm).build();
+
+        DecodedJWT decodedJWT = JWT.decode(rsaTemplate.mint("test", Collections.singletonList("role1")));
+
+        assertEquals("RS256", decodedJWT.getAlgorithm());
+        assertEquals(algorithm.getSigningKeyId(), decodedJWT.getKeyId());
+    }
+
+    @Test
+    public void shouldMintFromManyThreads() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> tokens = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                String userId = "user" + i;
+                tokens.add(executor.submit(() -> template.mint(userId, Collections.singletonList("role1"))));
+            }
+            JwtTokenVerifier verifier = JwtTokenVerifier.create(SECRET);
+            Set<String> jwtIds = new HashSet<>();
+            for (int i = 0; i < tokens.size(); i++) {
+                JwtAdapter jwt = verifier.verify(tokens.get(i).get());
+                assertEquals("user" + i, jwt.getUserId());
+                jwtIds.add(jwt.getDecodedJWT().getId());
+            }
+            assertEquals(tokens.size(), jwtIds.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotOverrideStaticClaims() {
+        template.mint("test", Collections.singletonList("role1"), Collections.singletonMap("tenant", "other"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotAcceptStaticTimeClaims() {
+        JwtTokenTemplate.builder(Algorithm.HMAC256(SECRET)).claimEntry("exp", 1).build();
+    }
+}
@@ -0,0 +1,88 @@
+package it.cosenonjaviste.security.jwt.utils;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import it.cosenonjaviste.security.jwt.model.JwtAdapter;
+import it.cosenonjaviste.security.jwt.utils.verifiers.JwtTokenVerifier;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+import static org.junit.Assert.*;
+
+public class TokenResignerTest {
+
+    private static final String SECRET = "my secret";
+
+    private static final long ISSUED_AT = 1_500_000_000L;
+
+    @Test
+    public void shouldKeepClaimsAndShiftTimeClaims() {
+        String payload = "{\"userId\":\"test\",\"roles\":[\"role1\",\"role2\"],\"scores\":[1,2.5,[3]],"
+                + "\"ratio\":0.75,\"address\":{\"city\":\"Rome\",\"zip\":100},"
+                + "\"iat\":" + ISSUED_AT + ",\"exp\":" + (ISSUED_AT + 600) + ",\"nbf\":" + (ISSUED_AT - 30)
+                + ",\"jti\":\"old-id\"}";
+        String token = sign("{\"alg\":\"HS256\",\"typ\":\"JWT\"}", payload);
+        DecodedJWT source = JWT.decode(token);
+
+        long now = (ISSUED_AT + 100) * 1000;
+        DecodedJWT renewed = JWT.decode(TokenResigner.renew(Algorithm.HMAC256(SECRET), source, now));
+        Algorithm.HMAC256(SECRET).verify(renewed);
+
+        assertEquals(source.getHeader(), renewed.getHeader());
+        assertEquals(ISSUED_AT + 100, renewed.getClaim("iat").asLong().longValue());
+        assertEquals(ISSUED_AT + 700, renewed.getClaim("exp").asLong().longValue());
+        assertEquals(ISSUED_AT + 70, renewed.getClaim("nbf").asLong().longValue());
+        assertNotEquals("old-id", renewed.getId());
+        assertEquals("test", renewed.getClaim(JwtConstants.USER_ID).asString());
+        assertEquals(Arrays.asList("role1", "role2"), renewed.getClaim(JwtConstants.ROLES).asList(String.class));
+        assertEquals(0.75, renewed.getClaim("ratio").asDouble(), 0);
+        assertEquals(payload.substring(0, payload.indexOf("\"iat\"")),
+                decodePayload(renewed).substring(0, payload.indexOf("\"iat\"")));
+    }
+
+    @Test
+    public void shouldRenewLikeBuilder() {
+        String token = JwtTokenBuilder.create(Algorithm.HMAC256(SECRET))
+                .userId("test")
+                .roles(Arrays.asList("role1", "role2"))
+                .claimEntry("ratio", 1.5)
+                .expirySecs(600)
+                .notValidBeforeLeeway(30)
+                .build();
+        JwtAdapter jwt = JwtTokenVerifier.create(SECRET).verify(token);
+
+        DecodedJWT rebuilt = JWT.decode(JwtTokenBuilder.from(jwt).build());
+        DecodedJWT renewed = JWT.decode(JwtTokenBuilder.renew(jwt));
+
+        assertEquals(rebuilt.getClaims().keySet(), renewed.getClaims().keySet());
+        assertEquals(rebuilt.getIssuedAt().getTime(), renewed.getIssuedAt().getTime(), 1000);
+        assertEquals(rebuilt.getExpiresAt().getTime(), renewed.getExpiresAt().getTime(), 1000);
+        assertEquals(rebuilt.getNotBefore().getTime(), renewed.getNotBefore().getTime(), 1000);
+        assertEquals(1.5, renewed.getClaim("ratio").asDouble(), 0);
+        assertEquals("test", JwtTokenVerifier.create(SECRET).verify(JWT.decode(renewed.getToken())).getUserId());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldFailWithoutIssuedAt() {
+        String token = JWT.create().withClaim(JwtConstants.USER_ID, "test").sign(Algorithm.HMAC256(SECRET));
+
+        TokenResigner.renew(Algorithm.HMAC256(SECRET), JWT.decode(token), System.currentTimeMillis());
+    }
+
+    private static String sign(String header, String payload) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        String headerPart = encoder.encodeToString(header.getBytes(StandardCharsets.UTF_8));
+        String payloadPart = encoder.encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+        byte[] signature = Algorithm.HMAC256(SECRET).sign(headerPart.getBytes(StandardCharsets.UTF_8),
+                payloadPart.getBytes(StandardCharsets.UTF_8));
+        return headerPart + '.' + payloadPart + '.' + encoder.encodeToString(signature);
+    }
+
+    private static String decodePayload(DecodedJWT decodedJWT) {
+        return new String(Base64.getUrlDecoder().decode(decodedJWT.getPayload()), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,94 @@
+package it.cosenonjaviste.security.jwt.utils.jwks;
+
+import com.auth0.jwk.Jwk;
+import com.auth0.jwk.SigningKeyNotFoundException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockserver.junit.MockServerRule;
+import org.mockserver.model.Delay;
+import org.mockserver.verify.VerificationTimes;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockserver.model.HttpRequest.request;
+import static org.mockserver.model.HttpResponse.response;
+
+public class HttpJwksSourceTest {
+
+    private static final String JWKS_PATH = "/certs";
+
+    @Rule
+    public MockServerRule mockServerRule = new MockServerRule(this);
+
+    @Test
+    public void shouldReuseKeysWhenNotModified() throws Exception {
+        mockServerRule.getClient()
+                .when(request().withPath(JWKS_PATH).withHeader("If-None-Match", "\"v1\""))
+                .respond(response().withStatusCode(304));
+        mockServerRule.getClient()
+                .when(request().withPath(JWKS_PATH))
+                .respond(response().withHeader("ETag", "\"v1\"").withBody(keys()));
+        HttpJwksSource source = new HttpJwksSource(jwksUrl(), 1000, 1000);
+
+        List<Jwk> first = source.load();
+        List<Jwk> second = source.load();
+
+        assertEquals(2, first.size());
+        assertSame(first, second);
+        mockServerRule.getClient()
+                .verify(request().withPath(JWKS_PATH).withHeader("If-None-Match", "\"v1\""), VerificationTimes.once());
+    }
+
+    @Test
+    public void shouldBoundMaxAge() throws Exception {
+        mockServerRule.getClient()
+                .when(request().withPath(JWKS_PATH))
+                .respond(response().withHeader("Cache-Control", "public, max-age=30").withBody(keys()));
+        HttpJwksSource source = new HttpJwksSource(jwksUrl(), 1000, 1000);
+        source.load();
+
+        assertEquals(5000, source.ttlMillis(5000));
+
+        source.withMaxAge(60, 3600, TimeUnit.SECONDS);
+        assertEquals(60_000, source.ttlMillis(5000));
+
+        source.withMaxAge(1, 3600, TimeUnit.SECONDS);
+        assertEquals(30_000, source.ttlMillis(5000));
+    }
+
+    @Test
+    public void shouldParseCacheControl() {
+        assertEquals(7_200_000, HttpJwksSource.maxAge("max-age=7200, must-revalidate", -1));
+        assertEquals(0, HttpJwksSource.maxAge("no-cache", -1));
+        assertEquals(-1, HttpJwksSource.maxAge("private", -1));
+        assertEquals(-1, HttpJwksSource.maxAge(null, -1));
+    }
+
+    @Test(expected = SigningKeyNotFoundException.class)
+    public void shouldFailOnReadTimeout() throws Exception {
+        mockServerRule.getClient()
+                .when(request().withPath(JWKS_PATH))
+                .respond(response().withBody(keys()).withDelay(Delay.milliseconds(1000)));
+
+        new HttpJwksSource(jwksUrl(), 1000, 100).load();
+    }
+
+    @Test(expected = SigningKeyNotFoundException.class)
+    public void shouldFailOnUnexpectedStatus() throws Exception {
+        new HttpJwksSource(jwksUrl(), 1000, 1000).load();
+    }
+
+    private URL jwksUrl() throws IOException {
+        return new URL("http://localhost:" + mockServerRule.getPort() + JWKS_PATH);
+    }
+
+    private static byte[] keys() throws IOException {
+        return Files.readAllBytes(Paths.get("target/test-classes/keys.json"));
+    }
+}
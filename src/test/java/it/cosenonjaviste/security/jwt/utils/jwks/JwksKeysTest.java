@@ -0,0 +1,179 @@
+package it.cosenonjaviste.security.jwt.utils.jwks;
+
+import com.auth0.jwk.Jwk;
+import com.auth0.jwk.SigningKeyNotFoundException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.security.interfaces.RSAPublicKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class JwksKeysTest {
+
+    private static final String KID = "jwt";
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    public void shouldParseKeysOnce() throws Exception {
+        JwksKeys keys = new JwksKeys(this::load, 1, TimeUnit.MINUTES);
+
+        RSAPublicKey first = keys.get(KID);
+        RSAPublicKey second = keys.get(KID);
+
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void shouldReloadExpiredKeys() throws Exception {
+        JwksKeys keys = new JwksKeys(this::load, 50, TimeUnit.MILLISECONDS);
+
+        keys.get(KID);
+        TimeUnit.MILLISECONDS.sleep(100);
+        keys.get(KID);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void shouldNotReloadOnEveryMiss() throws Exception {
+        JwksKeys keys = new JwksKeys(this::load, 1, TimeUnit.MINUTES);
+        keys.get(KID);
+
+        for (int i = 0; i < 10; i++) {
+            try {
+                keys.get("unknown");
+                fail("Key expected to be missing");
+            } catch (SigningKeyNotFoundException e) {
+                assertEquals("Failed to get key with kid unknown", e.getMessage());
+            }
+        }
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void shouldRejectKnownUnknownKidsWithoutReloading() throws Exception {
+        JwksKeys keys = new JwksKeys(this::load, 1, TimeUnit.MINUTES)
+                .withMissReloadInterval(0, TimeUnit.SECONDS)
+                .withUnknownKidsCache(10, 1, TimeUnit.MINUTES);
+        keys.get(KID);
+
+        for (int i = 0; i < 10; i++) {
+            assertMissing(keys, "unknown");
+        }
+        assertEquals(2, loads.get());
+
+        assertMissing(keys, "other");
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    public void shouldCoalesceConcurrentLoads() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        JwksKeys keys = new JwksKeys(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new SigningKeyNotFoundException("Interrupted", e);
+            }
+            return load();
+        }, 1, TimeUnit.MINUTES);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<RSAPublicKey>> lookups = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                lookups.add(executor.submit(() -> keys.get(KID)));
+            }
+            TimeUnit.MILLISECONDS.sleep(100);
+            release.countDown();
+            for (Future<RSAPublicKey> lookup : lookups) {
+                assertNotNull(lookup.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void shouldFailWhenKeysCannotBeLoaded() throws Exception {
+        expectedException.expect(SigningKeyNotFoundException.class);
+        expectedException.expectMessage("Failed to get key with kid " + KID);
+
+        new JwksKeys(() -> {
+            throw new SigningKeyNotFoundException("Cannot obtain jwks", null);
+        }, 1, TimeUnit.MINUTES).get(KID);
+    }
+
+    private void assertMissing(JwksKeys keys, String kid) throws Exception {
+        try {
+            keys.get(kid);
+            fail("Key expected to be missing");
+        } catch (SigningKeyNotFoundException e) {
+            assertEquals("Failed to get key with kid " + kid, e.getMessage());
+        }
+    }
+
+    @Test
+    public void shouldAgeSeededKeysFromSnapshotTime() throws Exception {
+        Path path = temporaryFolder.getRoot().toPath().resolve("jwks.json");
+        Files.copy(Paths.get("target/test-classes/keys.json"), path);
+        long ttl = 1000;
+        long maxStaleness = 1000;
+        Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis() - (ttl + maxStaleness - 400)));
+        JwksSnapshotFile.Content snapshot = new JwksSnapshotFile(path).read(ttl + maxStaleness);
+        JwksKeys keys = new JwksKeys(() -> {
+            throw new SigningKeyNotFoundException("IDP not reachable", null);
+        }, ttl, TimeUnit.MILLISECONDS).withBackgroundRefresh(maxStaleness, TimeUnit.MILLISECONDS);
+
+        keys.seed(snapshot.getJwks(), snapshot.getLastModified());
+        assertNotNull(keys.get(KID));
+
+        TimeUnit.MILLISECONDS.sleep(600);
+        expectedException.expect(SigningKeyNotFoundException.class);
+        keys.get(KID);
+    }
+
+    private List<Jwk> load() throws SigningKeyNotFoundException {
+        loads.incrementAndGet();
+        try {
+            Map<String, List<Map<String, Object>>> jwks = new ObjectMapper().readValue(
+                    Paths.get("target/test-classes/keys.json").toFile(),
+                    new TypeReference<Map<String, List<Map<String, Object>>>>() {
+                    });
+            return jwks.get("keys").stream().map(Jwk::fromValues).collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new SigningKeyNotFoundException(e.getMessage(), e);
+        }
+    }
+}
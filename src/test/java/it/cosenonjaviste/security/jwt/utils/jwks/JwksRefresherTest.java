@@ -0,0 +1,103 @@
+package it.cosenonjaviste.security.jwt.utils.jwks;
+
+import com.auth0.jwk.Jwk;
+import com.auth0.jwk.SigningKeyNotFoundException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class JwksRefresherTest {
+
+    private static final String KID = "jwt";
+
+    private AtomicInteger loads = new AtomicInteger();
+
+    private AtomicBoolean available = new AtomicBoolean(true);
+
+    private JwksRefresher refresher;
+
+    @After
+    public void tearDown() {
+        if (refresher != null) {
+            refresher.stop();
+        }
+    }
+
+    @Test
+    public void shouldPreloadKeys() throws Exception {
+        JwksKeys keys = new JwksKeys(this::load, 1, TimeUnit.MINUTES).withBackgroundRefresh(1, TimeUnit.MINUTES);
+        refresher = new JwksRefresher(keys);
+        refresher.start();
+        refresher.start();
+
+        assertEquals(1, loads.get());
+        assertNotNull(keys.get(KID));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void shouldRefreshAheadOfExpiration() throws Exception {
+        JwksKeys keys = new JwksKeys(this::load, 200, TimeUnit.MILLISECONDS).withBackgroundRefresh(0, TimeUnit.SECONDS);
+        refresher = new JwksRefresher(keys);
+        refresher.start();
+
+        TimeUnit.MILLISECONDS.sleep(500);
+
+        assertTrue(loads.get() >= 2);
+        assertNotNull(keys.get(KID));
+    }
+
+    @Test
+    public void shouldServeStaleKeysWhileSourceIsDown() throws Exception {
+        JwksKeys keys = new JwksKeys(this::load, 100, TimeUnit.MILLISECONDS).withBackgroundRefresh(1, TimeUnit.MINUTES);
+        refresher = new JwksRefresher(keys);
+        refresher.start();
+        available.set(false);
+
+        TimeUnit.MILLISECONDS.sleep(300);
+
+        assertNotNull(keys.get(KID));
+    }
+
+    @Test(expected = SigningKeyNotFoundException.class)
+    public void shouldNotLoadOnLookupBeyondMaxStaleness() throws Exception {
+        JwksKeys keys = new JwksKeys(this::load, 50, TimeUnit.MILLISECONDS).withBackgroundRefresh(50, TimeUnit.MILLISECONDS);
+        keys.refresh();
+
+        TimeUnit.MILLISECONDS.sleep(150);
+
+        try {
+            keys.get(KID);
+        } finally {
+            assertEquals(1, loads.get());
+        }
+    }
+
+    private List<Jwk> load() throws SigningKeyNotFoundException {
+        loads.incrementAndGet();
+        if (!available.get()) {
+            throw new SigningKeyNotFoundException("Cannot obtain jwks", null);
+        }
+        try {
+            Map<String, List<Map<String, Object>>> jwks = new ObjectMapper().readValue(
+                    Paths.get("target/test-classes/keys.json").toFile(),
+                    new TypeReference<Map<String, List<Map<String, Object>>>>() {
+                    });
+            return jwks.get("keys").stream().map(Jwk::fromValues).collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new SigningKeyNotFoundException(e.getMessage(), e);
+        }
+    }
+}
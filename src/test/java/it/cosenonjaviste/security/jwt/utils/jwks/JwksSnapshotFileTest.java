@@ -0,0 +1,55 @@
+package it.cosenonjaviste.security.jwt.utils.jwks;
+
+import com.auth0.jwk.Jwk;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class JwksSnapshotFileTest {
+
+    private static final long MAX_AGE = TimeUnit.HOURS.toMillis(1);
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void shouldWriteAndReadKeys() throws Exception {
+        List<Jwk> jwks = new JwksSnapshotFile(Paths.get("target/test-classes/keys.json")).read(Long.MAX_VALUE).getJwks();
+        JwksSnapshotFile snapshot = new JwksSnapshotFile(temporaryFolder.getRoot().toPath().resolve("jwks.json"));
+
+        snapshot.write(jwks);
+        snapshot.write(jwks);
+        List<Jwk> read = snapshot.read(MAX_AGE).getJwks();
+
+        assertEquals(jwks.size(), read.size());
+        for (int i = 0; i < jwks.size(); i++) {
+            assertEquals(jwks.get(i).getId(), read.get(i).getId());
+            assertEquals(jwks.get(i).getPublicKey(), read.get(i).getPublicKey());
+        }
+        assertArrayEquals(new String[]{"jwks.json"}, temporaryFolder.getRoot().list());
+    }
+
+    @Test
+    public void shouldIgnoreMissingOldOrInvalidSnapshots() throws Exception {
+        Path path = temporaryFolder.getRoot().toPath().resolve("jwks.json");
+        JwksSnapshotFile snapshot = new JwksSnapshotFile(path);
+
+        assertNull(snapshot.read(MAX_AGE));
+
+        Files.copy(Paths.get("target/test-classes/keys.json"), path);
+        Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis() - 2 * MAX_AGE));
+        assertNull(snapshot.read(MAX_AGE));
+
+        Files.write(path, "{\"keys\": ".getBytes());
+        assertNull(snapshot.read(MAX_AGE));
+    }
+}
@@ -0,0 +1,63 @@
+package it.cosenonjaviste.security.jwt.utils.jwks;
+
+import com.auth0.jwk.SigningKeyNotFoundException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockserver.junit.MockServerRule;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockserver.model.HttpRequest.request;
+import static org.mockserver.model.HttpResponse.response;
+
+public class OidcDiscoveryTest {
+
+    @Rule
+    public MockServerRule mockServerRule = new MockServerRule(this);
+
+    @Test
+    public void shouldBuildDiscoveryUrl() throws Exception {
+        String expected = "https://idp.example.com/realms/test/.well-known/openid-configuration";
+
+        assertEquals(expected, OidcDiscovery.discoveryUrl("https://idp.example.com/realms/test").toString());
+        assertEquals(expected, OidcDiscovery.discoveryUrl("https://idp.example.com/realms/test/").toString());
+        assertEquals(expected, OidcDiscovery.discoveryUrl(expected).toString());
+    }
+
+    @Test
+    public void shouldKeepIssuerAsConfigured() {
+        assertEquals("https://idp.example.com/realms/test", OidcDiscovery.issuer("https://idp.example.com/realms/test"));
+        assertEquals("https://idp.example.com/", OidcDiscovery.issuer("https://idp.example.com/"));
+        assertEquals("https://idp.example.com", OidcDiscovery.issuer("https://idp.example.com/.well-known/openid-configuration"));
+    }
+
+    @Test
+    public void shouldAcceptIssuerWithTrailingSlash() throws Exception {
+        mockServerRule.getClient()
+                .when(request().withPath(OidcDiscovery.WELL_KNOWN_PATH))
+                .respond(response().withBody("{\"issuer\": \"https://idp.example.com/\", "
+                        + "\"jwks_uri\": \"https://idp.example.com/certs\"}"));
+        OidcDiscovery discovery = new OidcDiscovery(discoveryUrl(), 1000, 1000, 60, TimeUnit.SECONDS)
+                .withIssuer(OidcDiscovery.issuer("https://idp.example.com/"));
+
+        assertEquals("https://idp.example.com/", discovery.get().getIssuer());
+    }
+
+    @Test(expected = SigningKeyNotFoundException.class)
+    public void shouldRejectIssuerWithoutTrailingSlash() throws Exception {
+        mockServerRule.getClient()
+                .when(request().withPath(OidcDiscovery.WELL_KNOWN_PATH))
+                .respond(response().withBody("{\"issuer\": \"https://idp.example.com\", "
+                        + "\"jwks_uri\": \"https://idp.example.com/certs\"}"));
+        new OidcDiscovery(discoveryUrl(), 1000, 1000, 60, TimeUnit.SECONDS)
+                .withIssuer("https://idp.example.com/")
+                .get();
+    }
+
+    private URL discoveryUrl() throws MalformedURLException {
+        return new URL("http://localhost:" + mockServerRule.getPort() + OidcDiscovery.WELL_KNOWN_PATH);
+    }
+}
@@ -0,0 +1,79 @@
+package it.cosenonjaviste.security.jwt.utils.verifiers;
+
+import com.auth0.jwk.SigningKeyNotFoundException;
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.SignatureVerificationException;
+import it.cosenonjaviste.security.jwt.exceptions.RejectedTokenException;
+import it.cosenonjaviste.security.jwt.model.JwtAdapter;
+import it.cosenonjaviste.security.jwt.utils.JwtConstants;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class CachingVerifierTest {
+
+    private static final String SECRET = "a secret";
+
+    private static final String TOKEN = JWT.create()
+            .withClaim(JwtConstants.USER_ID, "foo")
+            .withArrayClaim(JwtConstants.ROLES, new String[]{"admin"})
+            .sign(Algorithm.HMAC256(SECRET));
+
+    private final CachingVerifier cachingVerifier = new CachingVerifier(
+            new VerifiedTokenCache(10, 60, TimeUnit.SECONDS),
+            new RejectedTokenCache(10, 60, TimeUnit.SECONDS));
+
+    @Test
+    public void shouldVerifyOnce() {
+        AtomicInteger verifications = new AtomicInteger();
+        JwtTokenVerifier verifier = JwtTokenVerifier.create(SECRET);
+
+        JwtAdapter first = cachingVerifier.verify(TOKEN, t -> {
+            verifications.incrementAndGet();
+            return verifier.verify(t);
+        });
+        JwtAdapter second = cachingVerifier.verify(TOKEN, t -> {
+            verifications.incrementAndGet();
+            return verifier.verify(t);
+        });
+
+        assertSame(first, second);
+        assertEquals(1, verifications.get());
+    }
+
+    @Test
+    public void shouldRememberRejections() {
+        try {
+            cachingVerifier.verify(TOKEN, t -> {
+                throw new SignatureVerificationException(Algorithm.HMAC256(SECRET));
+            });
+            fail();
+        } catch (SignatureVerificationException expected) {
+        }
+
+        try {
+            cachingVerifier.verify(TOKEN, JwtTokenVerifier.create(SECRET)::verify);
+            fail();
+        } catch (RejectedTokenException expected) {
+        }
+    }
+
+    @Test
+    public void shouldNotRememberKeyLookupFailures() throws Exception {
+        try {
+            cachingVerifier.verify(TOKEN, t -> {
+                throw new SigningKeyNotFoundException("No key found", null);
+            });
+            fail();
+        } catch (SigningKeyNotFoundException expected) {
+        }
+
+        JwtAdapter verified = cachingVerifier.verify(TOKEN, JwtTokenVerifier.create(SECRET)::verify);
+
+        assertEquals("foo", verified.getUserId());
+    }
+}
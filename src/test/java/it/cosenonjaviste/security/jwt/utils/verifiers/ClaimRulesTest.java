@@ -0,0 +1,116 @@
+package it.cosenonjaviste.security.jwt.utils.verifiers;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTCreator;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.InvalidClaimException;
+import com.auth0.jwt.exceptions.TokenExpiredException;
+import it.cosenonjaviste.security.jwt.utils.JwtConstants;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class ClaimRulesTest {
+
+    private static final String SECRET = "a secret";
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    @Test
+    public void shouldAcceptTokenSatisfyingAllRules() {
+        ClaimRules rules = ClaimRules.builder()
+                .issuers(Collections.singleton("https://idp"))
+                .audiences(Arrays.asList("app1", "app2"))
+                .requiredClaims(Collections.singleton("azp"))
+                .allowedValues("azp", Arrays.asList("web", "mobile"))
+                .build();
+
+        String token = newToken()
+                .withIssuer("https://idp")
+                .withAudience("other", "app2")
+                .withClaim("azp", "web")
+                .sign(Algorithm.HMAC256(SECRET));
+
+        assertEquals("foo", verifier(rules).verify(token).getUserId());
+    }
+
+    @Test
+    public void shouldRejectUnsupportedIssuer() {
+        expectedException.expect(InvalidClaimException.class);
+        expectedException.expectMessage("Issuer claim value 'https://other' not supported");
+
+        ClaimRules rules = ClaimRules.builder().issuers(Collections.singleton("https://idp")).build();
+
+        verifier(rules).verify(newToken().withIssuer("https://other").sign(Algorithm.HMAC256(SECRET)));
+    }
+
+    @Test
+    public void shouldRejectUnsupportedAudiences() {
+        expectedException.expect(InvalidClaimException.class);
+        expectedException.expectMessage("Audience claim value 'app3, app4' not supported");
+
+        ClaimRules rules = ClaimRules.builder().audiences(Collections.singleton("app1")).build();
+
+        verifier(rules).verify(newToken().withAudience("app3", "app4").sign(Algorithm.HMAC256(SECRET)));
+    }
+
+    @Test
+    public void shouldRejectMissingRequiredClaim() {
+        expectedException.expect(InvalidClaimException.class);
+        expectedException.expectMessage("Claim 'typ' is required");
+
+        ClaimRules rules = ClaimRules.builder().requiredClaims(Collections.singleton("typ")).build();
+
+        verifier(rules).verify(newToken().sign(Algorithm.HMAC256(SECRET)));
+    }
+
+    @Test
+    public void shouldMatchAllowedValuesInArrayClaims() {
+        ClaimRules rules = ClaimRules.builder()
+                .allowedValues("groups", Collections.singleton("admins"))
+                .build();
+
+        verifier(rules).verify(newToken().withArrayClaim("groups", new String[]{"users", "admins"}).sign(Algorithm.HMAC256(SECRET)));
+
+        expectedException.expect(InvalidClaimException.class);
+        expectedException.expectMessage("Claim 'groups' value 'users, guests' not allowed");
+
+        verifier(rules).verify(newToken().withArrayClaim("groups", new String[]{"users", "guests"}).sign(Algorithm.HMAC256(SECRET)));
+    }
+
+    @Test
+    public void shouldTolerateLeewayOnExpiration() {
+        String token = newToken()
+                .withExpiresAt(new Date(System.currentTimeMillis() - 5000))
+                .sign(Algorithm.HMAC256(SECRET));
+
+        verifier(ClaimRules.builder().leeway(60).build()).verify(token);
+
+        expectedException.expect(TokenExpiredException.class);
+
+        verifier(ClaimRules.builder().leeway(1).build()).verify(token);
+    }
+
+    @Test
+    public void shouldCompileEmptyRulesToNone() {
+        assertSame(ClaimRules.NONE, ClaimRules.builder().issuers(Collections.emptySet()).build());
+    }
+
+    private static JwtTokenVerifier verifier(ClaimRules rules) {
+        return JwtTokenVerifier.create(SECRET).withClaimRules(rules);
+    }
+
+    private static JWTCreator.Builder newToken() {
+        return JWT.create()
+                .withClaim(JwtConstants.USER_ID, "foo")
+                .withArrayClaim(JwtConstants.ROLES, new String[]{"role1"});
+    }
+}
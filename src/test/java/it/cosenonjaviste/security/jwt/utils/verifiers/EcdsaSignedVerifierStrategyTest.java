@@ -0,0 +1,60 @@
+package it.cosenonjaviste.security.jwt.utils.verifiers;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.exceptions.SignatureVerificationException;
+import com.auth0.jwt.interfaces.ECDSAKeyProvider;
+import it.cosenonjaviste.security.jwt.utils.JwtConstants;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import static it.cosenonjaviste.security.jwt.testutils.KeyStores.retrieveEcKey;
+import static it.cosenonjaviste.security.jwt.testutils.KeyStores.retrieveKey;
+import static org.junit.Assert.assertEquals;
+
+public class EcdsaSignedVerifierStrategyTest {
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    @Test
+    public void shouldVerifyES256() {
+        ECDSAKeyProvider keyProvider = retrieveEcKey("es256");
+        verifyByAlgorithm(Algorithm.ECDSA256(keyProvider), keyProvider);
+    }
+
+    @Test
+    public void shouldVerifyES384() {
+        ECDSAKeyProvider keyProvider = retrieveEcKey("es384");
+        verifyByAlgorithm(Algorithm.ECDSA384(keyProvider), keyProvider);
+    }
+
+    @Test
+    public void shouldNotVerifyDueToAlgorithmNotSupported() {
+        expectedException.expect(JWTVerificationException.class);
+        expectedException.expectMessage("With EC keys, only ECDSA algorithms are supported");
+
+        verifyByAlgorithm(Algorithm.RSA256(retrieveKey()), retrieveEcKey("es256"));
+    }
+
+    @Test
+    public void shouldNotVerifyDueToOtherKey() {
+        expectedException.expect(SignatureVerificationException.class);
+
+        verifyByAlgorithm(Algorithm.ECDSA256(retrieveEcKey("es256")), retrieveEcKey("es384"));
+    }
+
+    private void verifyByAlgorithm(Algorithm algorithm, ECDSAKeyProvider keyProvider) {
+        String jwt = JWT.create()
+                .withClaim(JwtConstants.USER_ID, "foo")
+                .withArrayClaim(JwtConstants.ROLES, new String[]{"role1", "role2"})
+                .sign(algorithm);
+
+        EcdsaSignedVerifierStrategy verifierStrategy = new EcdsaSignedVerifierStrategy(keyProvider);
+        Algorithm extractedAlgorithm = verifierStrategy.verify(JWT.decode(jwt));
+
+        assertEquals(algorithm.getName(), extractedAlgorithm.getName());
+    }
+}
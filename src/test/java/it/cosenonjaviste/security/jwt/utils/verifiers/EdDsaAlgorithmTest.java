@@ -0,0 +1,58 @@
+package it.cosenonjaviste.security.jwt.utils.verifiers;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.SignatureVerificationException;
+import it.cosenonjaviste.security.jwt.model.JwtAdapter;
+import it.cosenonjaviste.security.jwt.utils.JwtConstants;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+public class EdDsaAlgorithmTest {
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    private KeyPair keyPair;
+
+    @Before
+    public void setUp() throws Exception {
+        assumeTrue("Ed25519 not supported by this JDK", EdDsaAlgorithm.isSupported());
+        keyPair = KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+    }
+
+    @Test
+    public void shouldSignAndVerify() {
+        Algorithm algorithm = EdDsaAlgorithm.ed25519(keyPair.getPublic(), keyPair.getPrivate());
+        String token = createJwt(algorithm);
+
+        assertEquals("EdDSA", JWT.decode(token).getAlgorithm());
+        JwtAdapter jwt = JwtTokenVerifier.createEdDsa(kid -> keyPair.getPublic(), null, null).verify(token);
+        assertEquals("foo", jwt.getUserId());
+    }
+
+    @Test
+    public void shouldNotVerifyDueToOtherKey() throws Exception {
+        expectedException.expect(SignatureVerificationException.class);
+
+        KeyPair other = KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+        String token = createJwt(EdDsaAlgorithm.ed25519(other.getPublic(), other.getPrivate()));
+
+        new EdDsaSignedVerifierStrategy(kid -> keyPair.getPublic()).verify(JWT.decode(token));
+    }
+
+    private static String createJwt(Algorithm algorithm) {
+        return JWT.create()
+                .withClaim(JwtConstants.USER_ID, "foo")
+                .withArrayClaim(JwtConstants.ROLES, new String[]{"role1", "role2"})
+                .sign(algorithm);
+    }
+}
@@ -0,0 +1,104 @@
+package it.cosenonjaviste.security.jwt.utils.verifiers;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.SignatureVerificationException;
+import it.cosenonjaviste.security.jwt.utils.JwtConstants;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class HmacEngineTest {
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    private static final String SECRET = "a secret";
+
+    @Test
+    public void shouldVerifyTokensSignedByJavaJwt() {
+        HmacEngine.hs256(SECRET).verify(JWT.decode(createJwt(Algorithm.HMAC256(SECRET))));
+        HmacEngine.hs384(SECRET).verify(JWT.decode(createJwt(Algorithm.HMAC384(SECRET))));
+        HmacEngine.hs512(SECRET).verify(JWT.decode(createJwt(Algorithm.HMAC512(SECRET))));
+    }
+
+    @Test
+    public void shouldSignAsJavaJwt() {
+        byte[] header = "{\"alg\":\"HS256\"}".getBytes();
+        byte[] payload = "{\"userId\":\"foo\"}".getBytes();
+
+        assertArrayEquals(Algorithm.HMAC256(SECRET).sign(header, payload), HmacEngine.hs256(SECRET).sign(header, payload));
+    }
+
+    @Test
+    public void shouldVerifyPaddedSignature() {
+        String jwt = createJwt(Algorithm.HMAC256(SECRET));
+
+        HmacEngine.hs256(SECRET).verify(JWT.decode(jwt + "="));
+    }
+
+    @Test
+    public void shouldNotVerifyTamperedPayload() {
+        expectedException.expect(SignatureVerificationException.class);
+        expectedException.expectMessage("HmacSHA256");
+
+        String[] parts = createJwt(Algorithm.HMAC256(SECRET)).split("\\.");
+        String otherPayload = createJwt(Algorithm.HMAC256(SECRET), "bar").split("\\.")[1];
+
+        HmacEngine.hs256(SECRET).verify(JWT.decode(parts[0] + "." + otherPayload + "." + parts[2]));
+    }
+
+    @Test
+    public void shouldNotVerifyTruncatedSignature() {
+        expectedException.expect(SignatureVerificationException.class);
+
+        String jwt = createJwt(Algorithm.HMAC256(SECRET));
+
+        HmacEngine.hs256(SECRET).verify(JWT.decode(jwt.substring(0, jwt.length() - 4)));
+    }
+
+    @Test
+    public void shouldNotVerifyWithDifferentSecret() {
+        expectedException.expect(SignatureVerificationException.class);
+
+        HmacEngine.hs256("another secret").verify(JWT.decode(createJwt(Algorithm.HMAC256(SECRET))));
+    }
+
+    @Test
+    public void shouldBeThreadSafe() throws Exception {
+        HmacEngine engine = HmacEngine.hs256(SECRET);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                String jwt = createJwt(Algorithm.HMAC256(SECRET), "user" + i);
+                results.add(executor.submit(() -> engine.verify(JWT.decode(jwt))));
+            }
+            for (Future<?> result : results) {
+                result.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private String createJwt(Algorithm algorithm) {
+        return createJwt(algorithm, "foo");
+    }
+
+    private String createJwt(Algorithm algorithm, String userId) {
+        return JWT.create()
+                .withClaim(JwtConstants.USER_ID, userId)
+                .withArrayClaim(JwtConstants.ROLES, new String[]{"role1", "role2"})
+                .sign(algorithm);
+    }
+}
@@ -0,0 +1,116 @@
+package it.cosenonjaviste.security.jwt.utils.verifiers;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTDecodeException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import it.cosenonjaviste.security.jwt.model.JwtAdapter;
+import it.cosenonjaviste.security.jwt.utils.JwtConstants;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class LazyDecodedJWTTest {
+
+    private static final String SECRET = "a secret";
+
+    private static final Set<String> EAGER_CLAIMS = LazyDecodedJWT.eagerClaims(JwtConstants.USER_ID, JwtConstants.ROLES);
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    @Test
+    public void shouldDecodeAsJavaJwt() {
+        String token = createJwt();
+
+        DecodedJWT expected = JWT.decode(token);
+        DecodedJWT actual = TokenDecoder.decode(token, EAGER_CLAIMS);
+
+        assertEquals(expected.getToken(), actual.getToken());
+        assertEquals(expected.getHeader(), actual.getHeader());
+        assertEquals(expected.getPayload(), actual.getPayload());
+        assertEquals(expected.getSignature(), actual.getSignature());
+        assertEquals(expected.getAlgorithm(), actual.getAlgorithm());
+        assertEquals(expected.getKeyId(), actual.getKeyId());
+        assertEquals(expected.getIssuer(), actual.getIssuer());
+        assertEquals(expected.getSubject(), actual.getSubject());
+        assertEquals(expected.getAudience(), actual.getAudience());
+        assertEquals(expected.getExpiresAt(), actual.getExpiresAt());
+        assertEquals(expected.getIssuedAt(), actual.getIssuedAt());
+        assertEquals(expected.getNotBefore(), actual.getNotBefore());
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getClaims().keySet(), actual.getClaims().keySet());
+        assertEquals(expected.getClaim(JwtConstants.USER_ID).asString(), actual.getClaim(JwtConstants.USER_ID).asString());
+        assertEquals(expected.getClaim(JwtConstants.ROLES).asList(String.class), actual.getClaim(JwtConstants.ROLES).asList(String.class));
+        assertEquals(expected.getClaim("level").asInt(), actual.getClaim("level").asInt());
+        assertEquals(expected.getClaim("nickname").asString(), actual.getClaim("nickname").asString());
+        assertTrue(actual.getClaim("missing").isNull());
+    }
+
+    @Test
+    public void shouldDecodeSingleAudience() {
+        String token = JWT.create().withAudience("app1").sign(Algorithm.HMAC256(SECRET));
+
+        assertEquals(Collections.singletonList("app1"), TokenDecoder.decode(token, EAGER_CLAIMS).getAudience());
+    }
+
+    @Test
+    public void shouldVerifyLazilyDecodedToken() {
+        JwtAdapter jwt = JwtTokenVerifier.create(SECRET)
+                .withLazyClaims(true)
+                .verify(createJwt());
+
+        assertEquals("foo", jwt.getUserId());
+        assertEquals(Arrays.asList("role1", "role2"), jwt.getRoles());
+        assertTrue(jwt.getDecodedJWT() instanceof LazyDecodedJWT);
+    }
+
+    @Test
+    public void shouldFailWithMalformedToken() {
+        expectedException.expect(JWTDecodeException.class);
+        expectedException.expectMessage("The token was expected to have 3 parts, but got 1.");
+
+        TokenDecoder.decode("invalidToken", EAGER_CLAIMS);
+    }
+
+    @Test
+    public void shouldFailWithInvalidPayload() {
+        expectedException.expect(JWTDecodeException.class);
+        expectedException.expectMessage("doesn't have a valid JSON format");
+
+        String[] parts = createJwt().split("\\.");
+        TokenDecoder.decode(parts[0] + ".eyJ1c2VySWQiOg." + parts[2], EAGER_CLAIMS);
+    }
+
+    @Test
+    public void shouldFailWithNonNumericDate() {
+        expectedException.expect(JWTDecodeException.class);
+        expectedException.expectMessage("The claim 'exp' contained a non-numeric date value.");
+
+        TokenDecoder.decode(JWT.create().withClaim("exp", "tomorrow").sign(Algorithm.HMAC256(SECRET)), EAGER_CLAIMS);
+    }
+
+    private String createJwt() {
+        return JWT.create()
+                .withKeyId("key1")
+                .withIssuer("issuer")
+                .withSubject("subject")
+                .withAudience("app1", "app2")
+                .withJWTId("id")
+                .withIssuedAt(new Date(1_500_000_000_000L))
+                .withNotBefore(new Date(1_500_000_000_000L))
+                .withExpiresAt(new Date(System.currentTimeMillis() + 100_000))
+                .withClaim(JwtConstants.USER_ID, "foo")
+                .withArrayClaim(JwtConstants.ROLES, new String[]{"role1", "role2"})
+                .withClaim("level", 3)
+                .withClaim("nickname", "bar")
+                .sign(Algorithm.HMAC256(SECRET));
+    }
+}
@@ -0,0 +1,73 @@
+package it.cosenonjaviste.security.jwt.utils.verifiers;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.exceptions.SignatureVerificationException;
+import com.auth0.jwt.exceptions.TokenExpiredException;
+import it.cosenonjaviste.security.jwt.exceptions.RejectedTokenException;
+import it.cosenonjaviste.security.jwt.utils.JwtConstants;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class RejectedTokenCacheTest {
+
+    private static final String SECRET = "a secret";
+
+    @Test
+    public void shouldForgetFailureAfterTtl() throws Exception {
+        RejectedTokenCache cache = new RejectedTokenCache(10, 50, TimeUnit.MILLISECONDS);
+        TokenDigest digest = TokenDigest.of("token");
+        SignatureVerificationException failure = new SignatureVerificationException(Algorithm.HMAC256(SECRET));
+        cache.put(digest, failure);
+
+        assertSame(failure, cache.get(digest));
+
+        TimeUnit.MILLISECONDS.sleep(100);
+
+        assertNull(cache.get(digest));
+    }
+
+    @Test
+    public void shouldRememberExpiredTokens() throws Exception {
+        RejectedTokenCache cache = new RejectedTokenCache(10, 50, TimeUnit.MILLISECONDS);
+        TokenDigest digest = TokenDigest.of("token");
+        cache.put(digest, new TokenExpiredException("The Token has expired"));
+
+        TimeUnit.MILLISECONDS.sleep(100);
+
+        assertNotNull(cache.get(digest));
+    }
+
+    @Test
+    public void shouldRejectReplayedTokenWithSameMessage() {
+        String token = JWT.create()
+                .withClaim(JwtConstants.USER_ID, "foo")
+                .withExpiresAt(new Date(Instant.now().minusSeconds(100).toEpochMilli()))
+                .sign(Algorithm.HMAC256(SECRET));
+        JwtTokenVerifier verifier = JwtTokenVerifier.create(SECRET)
+                .withRejectedCache(new RejectedTokenCache(10, 60, TimeUnit.SECONDS));
+
+        JWTVerificationException first = verifyFailure(verifier, token);
+        JWTVerificationException second = verifyFailure(verifier, token);
+
+        assertTrue(first instanceof TokenExpiredException);
+        assertTrue(second instanceof RejectedTokenException);
+        assertSame(first, second.getCause());
+        assertEquals(first.getMessage(), second.getMessage());
+    }
+
+    private JWTVerificationException verifyFailure(JwtTokenVerifier verifier, String token) {
+        try {
+            verifier.verify(token);
+        } catch (JWTVerificationException e) {
+            return e;
+        }
+        throw new AssertionError("Token verification expected to fail");
+    }
+}
@@ -0,0 +1,64 @@
+package it.cosenonjaviste.security.jwt.utils.verifiers;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import it.cosenonjaviste.security.jwt.testutils.KeyStores;
+import it.cosenonjaviste.security.jwt.utils.JwtTokenBuilder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+public class RsaKeystoreAlgorithmTest {
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    @Test
+    public void shouldSignWithAliasAsKeyId() throws Exception {
+        Algorithm algorithm = RsaKeystoreAlgorithm.rs256(KeyStores.get(), null, KeyStores.KEYSTORE_PASSWORD);
+
+        String token = JwtTokenBuilder.create(algorithm)
+                .userId("test")
+                .roles(Collections.singletonList("role1"))
+                .build();
+
+        DecodedJWT decodedJWT = JWT.decode(token);
+        assertEquals("RS256", decodedJWT.getAlgorithm());
+        assertEquals(KeyStores.KEY_ID, decodedJWT.getKeyId());
+        assertEquals("test", JwtTokenVerifier.create(KeyStores.retrieveKey()).verify(token).getUserId());
+        algorithm.verify(decodedJWT);
+    }
+
+    @Test
+    public void shouldSignWithOtherRsaAlgorithms() throws Exception {
+        Algorithm algorithm = RsaKeystoreAlgorithm.create("RS512", KeyStores.get(), KeyStores.KEY_ID, KeyStores.KEYSTORE_PASSWORD);
+
+        String token = JwtTokenBuilder.create(algorithm)
+                .userId("test")
+                .roles(Collections.singletonList("role1"))
+                .build();
+
+        Algorithm.RSA512(KeyStores.retrieveKey()).verify(JWT.decode(token));
+    }
+
+    @Test
+    public void shouldFailBecauseAliasNotFound() throws Exception {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("Alias 'unknown' not found in keystore");
+
+        RsaKeystoreAlgorithm.rs256(KeyStores.get(), "unknown", KeyStores.KEYSTORE_PASSWORD);
+    }
+
+    @Test
+    public void shouldFailBecauseOfEcKey() throws Exception {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("Alias 'es256' has a EC key, not supported by RsaKeystoreAlgorithm");
+
+        RsaKeystoreAlgorithm.rs256(KeyStores.get(KeyStores.EC_KEYSTORE), KeyStores.EC_KEY_ID, KeyStores.KEYSTORE_PASSWORD);
+    }
+}
@@ -0,0 +1,111 @@
+package it.cosenonjaviste.security.jwt.utils.verifiers;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.auth0.jwt.interfaces.ECDSAKeyProvider;
+import com.auth0.jwt.interfaces.RSAKeyProvider;
+import it.cosenonjaviste.security.jwt.testutils.KeyStores;
+import it.cosenonjaviste.security.jwt.utils.JwtConstants;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of issuing (signing) and verifying a token with RS256 (2048 bit key), ES256 (P-256) and EdDSA (Ed25519).
+ * RS256 signing is measured also with {@link RsaKeystoreAlgorithm}, reusing keys and {@link java.security.Signature} instances.
+ * EdDSA benchmarks are skipped where the JDK has no Ed25519 support.
+ * <br>
+ * Run with <tt>mvn clean test-compile exec:java -Pbenchmark -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args=SignatureAlgorithmBenchmark</tt>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SignatureAlgorithmBenchmark {
+
+    private Algorithm rsa;
+
+    private Algorithm rsaKeystore;
+
+    private Algorithm ecdsa;
+
+    private Algorithm edDsa;
+
+    private DecodedJWT rsaToken;
+
+    private DecodedJWT ecdsaToken;
+
+    private DecodedJWT edDsaToken;
+
+    private RsaSignedVerifierStrategy rsaStrategy;
+
+    private EcdsaSignedVerifierStrategy ecdsaStrategy;
+
+    private EdDsaSignedVerifierStrategy edDsaStrategy;
+
+    @Setup
+    public void setUp() throws Exception {
+        RSAKeyProvider rsaKeys = KeyStores.retrieveKey();
+        ECDSAKeyProvider ecKeys = KeyStores.retrieveEcKey(KeyStores.EC_KEY_ID);
+        rsa = Algorithm.RSA256(rsaKeys);
+        rsaKeystore = RsaKeystoreAlgorithm.rs256(KeyStores.get(), KeyStores.KEY_ID, KeyStores.KEYSTORE_PASSWORD);
+        ecdsa = Algorithm.ECDSA256(ecKeys);
+        rsaToken = JWT.decode(createJwt(rsa));
+        ecdsaToken = JWT.decode(createJwt(ecdsa));
+        rsaStrategy = new RsaSignedVerifierStrategy(rsaKeys);
+        ecdsaStrategy = new EcdsaSignedVerifierStrategy(ecKeys);
+        if (EdDsaAlgorithm.isSupported()) {
+            KeyPair keyPair = KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+            edDsa = EdDsaAlgorithm.ed25519(keyPair.getPublic(), keyPair.getPrivate());
+            edDsaToken = JWT.decode(createJwt(edDsa));
+            edDsaStrategy = new EdDsaSignedVerifierStrategy(kid -> keyPair.getPublic());
+        }
+    }
+
+    @Benchmark
+    public String rsaSign() {
+        return createJwt(rsa);
+    }
+
+    @Benchmark
+    public String rsaKeystoreSign() {
+        return createJwt(rsaKeystore);
+    }
+
+    @Benchmark
+    public String ecdsaSign() {
+        return createJwt(ecdsa);
+    }
+
+    @Benchmark
+    public String edDsaSign() {
+        return edDsa != null ? createJwt(edDsa) : null;
+    }
+
+    @Benchmark
+    public Algorithm rsaVerify() {
+        return rsaStrategy.verify(rsaToken);
+    }
+
+    @Benchmark
+    public Algorithm ecdsaVerify() {
+        return ecdsaStrategy.verify(ecdsaToken);
+    }
+
+    @Benchmark
+    public Algorithm edDsaVerify() {
+        return edDsaStrategy != null ? edDsaStrategy.verify(edDsaToken) : null;
+    }
+
+    private static String createJwt(Algorithm algorithm) {
+        return JWT.create()
+                .withClaim(JwtConstants.USER_ID, "foo")
+                .withArrayClaim(JwtConstants.ROLES, new String[]{"role1", "role2"})
+                .sign(algorithm);
+    }
+}
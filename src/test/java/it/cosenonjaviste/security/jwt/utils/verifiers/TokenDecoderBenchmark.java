@@ -0,0 +1,58 @@
+package it.cosenonjaviste.security.jwt.utils.verifiers;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTCreator;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import it.cosenonjaviste.security.jwt.utils.JwtConstants;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link TokenDecoder}, with and without lazy claims, with <tt>JWT.decode</tt> on a token carrying many claims.
+ * <br>
+ * Run with <tt>mvn clean test-compile exec:java -Pbenchmark -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args=TokenDecoderBenchmark</tt>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenDecoderBenchmark {
+
+    private static final Set<String> EAGER_CLAIMS = LazyDecodedJWT.eagerClaims(JwtConstants.USER_ID, JwtConstants.ROLES);
+
+    private String token;
+
+    @Setup
+    public void setUp() {
+        JWTCreator.Builder builder = JWT.create()
+                .withKeyId("key1")
+                .withIssuer("https://issuer.example.com")
+                .withAudience("app1")
+                .withClaim(JwtConstants.USER_ID, "foo")
+                .withArrayClaim(JwtConstants.ROLES, new String[]{"role1", "role2"});
+        for (int i = 0; i < 30; i++) {
+            builder.withClaim("claim" + i, "value of claim number " + i);
+        }
+        token = builder.sign(Algorithm.HMAC256("a secret"));
+    }
+
+    @Benchmark
+    public DecodedJWT javaJwt() {
+        return JWT.decode(token);
+    }
+
+    @Benchmark
+    public DecodedJWT shared() {
+        return TokenDecoder.decode(token);
+    }
+
+    @Benchmark
+    public DecodedJWT sharedLazy() {
+        return TokenDecoder.decode(token, EAGER_CLAIMS);
+    }
+}
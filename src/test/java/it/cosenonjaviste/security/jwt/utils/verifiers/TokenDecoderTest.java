@@ -0,0 +1,75 @@
+package it.cosenonjaviste.security.jwt.utils.verifiers;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTDecodeException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import it.cosenonjaviste.security.jwt.utils.JwtConstants;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+
+public class TokenDecoderTest {
+
+    private static final String SECRET = "a secret";
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    @Test
+    public void shouldDecodeAsJavaJwt() {
+        String token = createJwt("foo");
+
+        DecodedJWT expected = JWT.decode(token);
+        DecodedJWT actual = TokenDecoder.decode(token);
+
+        assertEquals(expected.getToken(), actual.getToken());
+        assertEquals(expected.getHeader(), actual.getHeader());
+        assertEquals(expected.getPayload(), actual.getPayload());
+        assertEquals(expected.getSignature(), actual.getSignature());
+        assertEquals(expected.getAlgorithm(), actual.getAlgorithm());
+        assertEquals(expected.getKeyId(), actual.getKeyId());
+        assertEquals(expected.getExpiresAt(), actual.getExpiresAt());
+        assertEquals(expected.getClaims().keySet(), actual.getClaims().keySet());
+        assertEquals(expected.getClaim(JwtConstants.USER_ID).asString(), actual.getClaim(JwtConstants.USER_ID).asString());
+    }
+
+    @Test
+    public void shouldShareHeaderAmongTokens() {
+        DecodedJWT first = TokenDecoder.decode(createJwt("foo"));
+        DecodedJWT second = TokenDecoder.decode(createJwt("bar"));
+
+        assertEquals(first.getHeader(), second.getHeader());
+        assertEquals("key1", second.getKeyId());
+        assertEquals("foo", first.getClaim(JwtConstants.USER_ID).asString());
+        assertEquals("bar", second.getClaim(JwtConstants.USER_ID).asString());
+    }
+
+    @Test
+    public void shouldFailWithMalformedToken() {
+        expectedException.expect(JWTDecodeException.class);
+        expectedException.expectMessage("The token was expected to have 3 parts, but got 4.");
+
+        TokenDecoder.decode("a.b.c.d");
+    }
+
+    @Test
+    public void shouldFailWithInvalidHeader() {
+        expectedException.expect(JWTDecodeException.class);
+        expectedException.expectMessage("doesn't have a valid JSON format");
+
+        TokenDecoder.decode("eyJhbGciOiJIUzI1NiJ." + createJwt("foo").split("\\.", 2)[1]);
+    }
+
+    private String createJwt(String userId) {
+        return JWT.create()
+                .withKeyId("key1")
+                .withExpiresAt(new Date(System.currentTimeMillis() + 100_000))
+                .withClaim(JwtConstants.USER_ID, userId)
+                .sign(Algorithm.HMAC256(SECRET));
+    }
+}
@@ -0,0 +1,77 @@
+package it.cosenonjaviste.security.jwt.utils.verifiers;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import it.cosenonjaviste.security.jwt.model.JwtAdapter;
+import it.cosenonjaviste.security.jwt.utils.JwtConstants;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class VerifiedTokenCacheTest {
+
+    private static final String SECRET = "a secret";
+
+    @Test
+    public void shouldReturnCachedToken() {
+        String token = createJwt(Instant.now().plusSeconds(100));
+        JwtAdapter jwt = JwtTokenVerifier.create(SECRET).verify(token);
+
+        VerifiedTokenCache cache = new VerifiedTokenCache(10, 60, TimeUnit.SECONDS);
+        cache.put(TokenDigest.of(token), jwt);
+
+        assertSame(jwt, cache.get(TokenDigest.of(token)));
+        assertNull(cache.get(TokenDigest.of(token + "x")));
+    }
+
+    @Test
+    public void shouldNotOutliveTokenExpiration() throws Exception {
+        String token = createJwt(Instant.now().plusSeconds(1));
+        JwtAdapter jwt = JwtTokenVerifier.create(SECRET).verify(token);
+
+        VerifiedTokenCache cache = new VerifiedTokenCache(10, 60, TimeUnit.SECONDS);
+        cache.put(TokenDigest.of(token), jwt);
+
+        TimeUnit.MILLISECONDS.sleep(2100);
+
+        assertNull(cache.get(TokenDigest.of(token)));
+    }
+
+    @Test
+    public void shouldNotOutliveTtl() throws Exception {
+        String token = createJwt(Instant.now().plusSeconds(100));
+        JwtAdapter jwt = JwtTokenVerifier.create(SECRET).verify(token);
+
+        VerifiedTokenCache cache = new VerifiedTokenCache(10, 50, TimeUnit.MILLISECONDS);
+        cache.put(TokenDigest.of(token), jwt);
+
+        TimeUnit.MILLISECONDS.sleep(100);
+
+        assertNull(cache.get(TokenDigest.of(token)));
+    }
+
+    @Test
+    public void shouldSkipVerificationWhenCached() {
+        String token = createJwt(Instant.now().plusSeconds(100));
+        JwtTokenVerifier verifier = JwtTokenVerifier.create(SECRET)
+                .withCache(new VerifiedTokenCache(10, 60, TimeUnit.SECONDS));
+
+        JwtAdapter first = verifier.verify(token);
+        JwtAdapter second = verifier.verify(token);
+
+        assertSame(first, second);
+        assertEquals("foo", second.getUserId());
+    }
+
+    private String createJwt(Instant expiresAt) {
+        return JWT.create()
+                .withClaim(JwtConstants.USER_ID, "foo")
+                .withArrayClaim(JwtConstants.ROLES, new String[]{"role1", "role2"})
+                .withExpiresAt(new Date(expiresAt.toEpochMilli()))
+                .sign(Algorithm.HMAC256(SECRET));
+    }
+}
@@ -0,0 +1,77 @@
+package it.cosenonjaviste.security.jwt.utils.verifiers;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.auth0.jwt.interfaces.RSAKeyProvider;
+import it.cosenonjaviste.security.jwt.testutils.KeyStores;
+import it.cosenonjaviste.security.jwt.utils.JwtConstants;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares precompiled verifiers with the former per-request <tt>Algorithm</tt> and <tt>JWTVerifier</tt> construction.
+ * <br>
+ * Run with <tt>mvn clean test-compile exec:java -Pbenchmark -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args=VerifierStrategyBenchmark</tt>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VerifierStrategyBenchmark {
+
+    private static final String SECRET = "a secret";
+
+    private RSAKeyProvider keyProvider;
+
+    private DecodedJWT hmacToken;
+
+    private DecodedJWT rsaToken;
+
+    private HmacSignedVerifierStrategy hmacStrategy;
+
+    private RsaSignedVerifierStrategy rsaStrategy;
+
+    @Setup
+    public void setUp() {
+        keyProvider = KeyStores.retrieveKey();
+        hmacToken = JWT.decode(createJwt(Algorithm.HMAC256(SECRET)));
+        rsaToken = JWT.decode(createJwt(Algorithm.RSA256(keyProvider)));
+        hmacStrategy = new HmacSignedVerifierStrategy(SECRET);
+        rsaStrategy = new RsaSignedVerifierStrategy(keyProvider);
+    }
+
+    @Benchmark
+    public Algorithm hmacPerRequest() {
+        Algorithm algorithm = Algorithm.HMAC256(SECRET);
+        JWT.require(algorithm).build().verify(hmacToken);
+        return algorithm;
+    }
+
+    @Benchmark
+    public Algorithm hmacPrecompiled() {
+        return hmacStrategy.verify(hmacToken);
+    }
+
+    @Benchmark
+    public Algorithm rsaPerRequest() {
+        Algorithm algorithm = Algorithm.RSA256(keyProvider);
+        JWT.require(algorithm).build().verify(rsaToken);
+        return algorithm;
+    }
+
+    @Benchmark
+    public Algorithm rsaPrecompiled() {
+        return rsaStrategy.verify(rsaToken);
+    }
+
+    private static String createJwt(Algorithm algorithm) {
+        return JWT.create()
+                .withClaim(JwtConstants.USER_ID, "foo")
+                .withArrayClaim(JwtConstants.ROLES, new String[]{"role1", "role2"})
+                .sign(algorithm);
+    }
+}
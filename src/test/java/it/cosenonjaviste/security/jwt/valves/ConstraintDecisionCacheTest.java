@@ -0,0 +1,85 @@
+package it.cosenonjaviste.security.jwt.valves;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.Lifecycle;
+import org.apache.catalina.LifecycleEvent;
+import org.apache.catalina.LifecycleListener;
+import org.apache.catalina.connector.Request;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class ConstraintDecisionCacheTest {
+
+    private ConstraintDecisionCache cache = new ConstraintDecisionCache(10);
+
+    private Context context = mock(Context.class);
+
+    private AtomicInteger evaluations = new AtomicInteger();
+
+    private Predicate<Request> decision = request -> {
+        evaluations.incrementAndGet();
+        return true;
+    };
+
+    @Before
+    public void setUp() {
+        evaluations.set(0);
+    }
+
+    @Test
+    public void shouldEvaluateOncePerUriAndMethod() {
+        assertTrue(cache.needsAuthentication(request("/app/secured", "GET"), decision));
+        assertTrue(cache.needsAuthentication(request("/app/secured", "GET"), decision));
+        assertEquals(1, evaluations.get());
+
+        cache.needsAuthentication(request("/app/secured", "POST"), decision);
+        cache.needsAuthentication(request("/app/other", "GET"), decision);
+        assertEquals(3, evaluations.get());
+    }
+
+    @Test
+    public void shouldNotCacheWithoutUri() {
+        cache.needsAuthentication(request(null, "GET"), decision);
+        cache.needsAuthentication(request(null, "GET"), decision);
+
+        assertEquals(2, evaluations.get());
+    }
+
+    @Test
+    public void shouldInvalidateOnContextReload() {
+        cache.needsAuthentication(request("/app/secured", "GET"), decision);
+
+        ArgumentCaptor<LifecycleListener> listener = ArgumentCaptor.forClass(LifecycleListener.class);
+        verify(context).addLifecycleListener(listener.capture());
+        listener.getValue().lifecycleEvent(new LifecycleEvent(context, Lifecycle.STOP_EVENT, null));
+
+        cache.needsAuthentication(request("/app/secured", "GET"), decision);
+        assertEquals(2, evaluations.get());
+    }
+
+    @Test
+    public void shouldStopListeningOnClear() {
+        cache.needsAuthentication(request("/app/secured", "GET"), decision);
+        cache.clear();
+
+        verify(context).removeLifecycleListener(any(LifecycleListener.class));
+
+        cache.needsAuthentication(request("/app/secured", "GET"), decision);
+        assertEquals(2, evaluations.get());
+    }
+
+    private Request request(String uri, String method) {
+        Request request = mock(Request.class);
+        when(request.getContext()).thenReturn(context);
+        when(request.getDecodedRequestURI()).thenReturn(uri);
+        when(request.getMethod()).thenReturn(method);
+        return request;
+    }
+}
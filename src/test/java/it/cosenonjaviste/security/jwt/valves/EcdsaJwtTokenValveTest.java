@@ -0,0 +1,130 @@
+package it.cosenonjaviste.security.jwt.valves;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import it.cosenonjaviste.security.jwt.exceptions.ValveInitializationException;
+import it.cosenonjaviste.security.jwt.testutils.KeyStores;
+import it.cosenonjaviste.security.jwt.utils.JwtConstants;
+import org.apache.catalina.*;
+import org.apache.catalina.connector.Request;
+import org.apache.catalina.connector.Response;
+import org.apache.tomcat.util.descriptor.web.SecurityConstraint;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.attribute.UserPrincipal;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class EcdsaJwtTokenValveTest {
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    private EcdsaJwtTokenValve jwtValve = new EcdsaJwtTokenValve();
+
+    // Catalina mocks
+    @Mock
+    private Container container;
+
+    @Mock
+    private Realm realm;
+
+    @Mock
+    private Context context;
+
+    @Mock
+    private Request request;
+
+    private org.apache.coyote.Request coyoteRequest = new org.apache.coyote.Request();
+
+    @Mock
+    private Response response;
+
+    @Mock
+    private Valve nextValve;
+
+    @Before
+    public void setUp() throws LifecycleException {
+        jwtValve.setContainer(container);
+        jwtValve.setNext(nextValve);
+        jwtValve.setKeystorePath("target/test-classes/" + KeyStores.EC_KEYSTORE);
+        jwtValve.setKeystorePassword(KeyStores.KEYSTORE_PASSWORD);
+        jwtValve.setKeyPairsAlias(KeyStores.EC_KEY_ID);
+
+        when(container.getRealm()).thenReturn(realm);
+        when(request.getContext()).thenReturn(context);
+        when(request.getCoyoteRequest()).thenReturn(coyoteRequest);
+        SecurityConstraint securityConstraint = new SecurityConstraint();
+        securityConstraint.setAuthConstraint(true);
+        when(realm.findSecurityConstraints(request, request.getContext()))
+                .thenReturn(new SecurityConstraint[]{securityConstraint});
+    }
+
+    @Test
+    public void shouldPassAuthWithDefaultAlias() throws Exception {
+        jwtValve.initInternal();
+        addHeader(JwtConstants.AUTH_HEADER, getTestToken(Algorithm.ECDSA256(KeyStores.retrieveEcKey("es256"))));
+
+        jwtValve.invoke(request, response);
+
+        InOrder inOrder = inOrder(request, nextValve);
+        inOrder.verify(request).setUserPrincipal(any(UserPrincipal.class));
+        inOrder.verify(request).setAuthType("TOKEN");
+        inOrder.verify(nextValve).invoke(request, response);
+    }
+
+    @Test
+    public void shouldPassAuthWithKeyOfTokenKid() throws Exception {
+        jwtValve.setTrustedAliases("es256,es384");
+        jwtValve.initInternal();
+        addHeader(JwtConstants.AUTH_HEADER, getTestToken(Algorithm.ECDSA384(KeyStores.retrieveEcKey("es384"))));
+
+        jwtValve.invoke(request, response);
+
+        verify(request).setUserPrincipal(any(UserPrincipal.class));
+        verify(nextValve).invoke(request, response);
+    }
+
+    @Test
+    public void shouldFailAuthBecauseOfRsaToken() throws Exception {
+        jwtValve.initInternal();
+        addHeader(JwtConstants.AUTH_HEADER, getTestToken(Algorithm.RSA256(KeyStores.retrieveKey())));
+
+        jwtValve.invoke(request, response);
+
+        verify(response).sendError(401, "Token not valid. Cause: With EC keys, only ECDSA algorithms are supported");
+        verify(nextValve, never()).invoke(request, response);
+    }
+
+    @Test
+    public void shouldFailInitBecauseOfRsaKeystore() throws Exception {
+        expectedException.expect(ValveInitializationException.class);
+        expectedException.expectMessage("Alias 'jwt' has a RSA key, not supported by EcdsaJwtTokenValve");
+
+        jwtValve.setKeystorePath("target/test-classes/" + KeyStores.KEYSTORE);
+        jwtValve.setKeyPairsAlias(KeyStores.KEY_ID);
+        jwtValve.initInternal();
+    }
+
+    private String getTestToken(Algorithm algorithm) {
+        return JWT.create()
+                .withClaim(JwtConstants.USER_ID, "test")
+                .withArrayClaim(JwtConstants.ROLES, new String[]{"role1", "role2"})
+                .sign(algorithm);
+    }
+
+    private void addHeader(String name, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.ISO_8859_1);
+        coyoteRequest.getMimeHeaders().addValue(name).setBytes(bytes, 0, bytes.length);
+    }
+}
@@ -16,6 +16,7 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
@@ -23,19 +24,26 @@ import org.mockito.junit.MockitoRule;
 import org.mockserver.junit.MockServerRule;
 import org.mockserver.verify.VerificationTimes;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.attribute.UserPrincipal;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.TimeZone;
 import java.util.concurrent.TimeUnit;
 
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.*;
 import static org.mockserver.model.HttpRequest.request;
 import static org.mockserver.model.HttpResponse.response;
@@ -55,6 +63,9 @@ public class OidcJwtTokenValveTest {
     @Rule
     public ExpectedException expectedException = ExpectedException.none();
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     private OidcJwtTokenValve jwtValve = new OidcJwtTokenValve();
 
     // Catalina mocks
@@ -70,6 +81,8 @@ public class OidcJwtTokenValveTest {
     @Mock
     private Request request;
 
+    private org.apache.coyote.Request coyoteRequest = new org.apache.coyote.Request();
+
     @Mock
     private Response response;
 
@@ -88,6 +101,7 @@ public class OidcJwtTokenValveTest {
 
         when(container.getRealm()).thenReturn(realm);
         when(request.getContext()).thenReturn(context);
+        when(request.getCoyoteRequest()).thenReturn(coyoteRequest);
     }
 
     @After
@@ -111,15 +125,13 @@ public class OidcJwtTokenValveTest {
     @Test
     public void shouldValidateToken() throws Exception {
         mockSecurityConstraints();
-        when(request.getHeader("Authorization")).thenReturn(
-                "Bearer " + getTestToken());
+        addHeader("Authorization", "Bearer " + getTestToken());
         setupOidcServer();
         jwtValve.initInternal();
 
         jwtValve.invoke(request, response);
 
         InOrder inOrder = inOrder(request, nextValve);
-        inOrder.verify(request).getHeader("Authorization");
         inOrder.verify(request).setUserPrincipal(any(UserPrincipal.class));
         inOrder.verify(request).setAuthType("TOKEN");
         inOrder.verify(nextValve).invoke(request, response);
@@ -130,8 +142,7 @@ public class OidcJwtTokenValveTest {
     @Test
     public void shouldValidateTokenWithAudienceConstraints() throws Exception {
         mockSecurityConstraints();
-        when(request.getHeader("Authorization")).thenReturn(
-                "Bearer " + getTestToken());
+        addHeader("Authorization", "Bearer " + getTestToken());
         setupOidcServer();
         jwtValve.setSupportedAudiences("app1, app2");
         jwtValve.initInternal();
@@ -139,7 +150,6 @@ public class OidcJwtTokenValveTest {
         jwtValve.invoke(request, response);
 
         InOrder inOrder = inOrder(request, nextValve);
-        inOrder.verify(request).getHeader("Authorization");
         inOrder.verify(request).setUserPrincipal(any(UserPrincipal.class));
         inOrder.verify(request).setAuthType("TOKEN");
         inOrder.verify(nextValve).invoke(request, response);
@@ -150,8 +160,7 @@ public class OidcJwtTokenValveTest {
     @Test
     public void shouldRetrieveKeysOnce() throws Exception {
         mockSecurityConstraints();
-        when(request.getHeader("Authorization")).thenReturn(
-                "Bearer " + getTestToken());
+        addHeader("Authorization", "Bearer " + getTestToken());
         setupOidcServer();
         jwtValve.initInternal();
 
@@ -165,8 +174,7 @@ public class OidcJwtTokenValveTest {
     @Test
     public void shouldRetrieveKeysTwice() throws Exception {
         mockSecurityConstraints();
-        when(request.getHeader("Authorization")).thenReturn(
-                "Bearer " + getTestToken());
+        addHeader("Authorization", "Bearer " + getTestToken());
         setupOidcServer();
         jwtValve.setExpiresIn(1);
         jwtValve.setTimeUnit("SECONDS");
@@ -181,16 +189,181 @@ public class OidcJwtTokenValveTest {
         verifyOidcServerInvokedExactly(2);
     }
 
+    @Test
+    public void shouldPreloadAndRefreshKeysInBackground() throws Exception {
+        mockSecurityConstraints();
+        addHeader("Authorization", "Bearer " + getTestToken());
+        setupOidcServer();
+        jwtValve.setExpiresIn(1);
+        jwtValve.setTimeUnit("SECONDS");
+        jwtValve.setJwksRefreshAhead(true);
+        jwtValve.init();
+        jwtValve.start();
+
+        verifyOidcServerInvokedExactly(1);
+
+        TimeUnit.MILLISECONDS.sleep(1500);
+
+        jwtValve.invoke(request, response);
+        jwtValve.stop();
+
+        verify(nextValve).invoke(request, response);
+        mockServerRule.getClient()
+                .verify(
+                        request()
+                                .withPath(OIDC_KEYS),
+                        VerificationTimes.atLeast(2)
+                );
+    }
+
+    @Test
+    public void shouldStoreKeysSnapshot() throws Exception {
+        mockSecurityConstraints();
+        addHeader("Authorization", "Bearer " + getTestToken());
+        setupOidcServer();
+        Path snapshot = temporaryFolder.getRoot().toPath().resolve("jwks.json");
+        jwtValve.setJwksSnapshotFile(snapshot.toString());
+        jwtValve.initInternal();
+
+        jwtValve.invoke(request, response);
+
+        verify(nextValve).invoke(request, response);
+        assertTrue(new String(Files.readAllBytes(snapshot), StandardCharsets.UTF_8).contains("\"kid\":\"jwt\""));
+    }
+
+    @Test
+    public void shouldAuthenticateWithKeysSnapshotWhileIdpIsDown() throws Exception {
+        mockSecurityConstraints();
+        addHeader("Authorization", "Bearer " + getTestToken());
+        Path snapshot = temporaryFolder.getRoot().toPath().resolve("jwks.json");
+        Files.copy(Paths.get("target/test-classes/keys.json"), snapshot);
+        jwtValve.setJwksSnapshotFile(snapshot.toString());
+        jwtValve.initInternal();
+
+        jwtValve.invoke(request, response);
+
+        InOrder inOrder = inOrder(request, nextValve);
+        inOrder.verify(request).setUserPrincipal(any(UserPrincipal.class));
+        inOrder.verify(request).setAuthType("TOKEN");
+        inOrder.verify(nextValve).invoke(request, response);
+    }
+
+    @Test
+    public void shouldDiscoverKeysUri() throws Exception {
+        mockSecurityConstraints();
+        addHeader("Authorization", "Bearer " + getTestToken());
+        setupOidcServer();
+        setupDiscovery("RS256");
+        jwtValve.setDiscoveryUrl("http://localhost:" + mockServerRule.getPort() + "/realms/test");
+        jwtValve.setIssuerUrl("http://localhost:" + mockServerRule.getPort() + "/unused");
+        jwtValve.initInternal();
+
+        jwtValve.invoke(request, response);
+
+        verify(nextValve).invoke(request, response);
+        verifyOidcServerInvokedExactly(1);
+    }
+
+    @Test
+    public void shouldRejectAlgorithmNotSupportedByIssuer() throws Exception {
+        mockSecurityConstraints();
+        addHeader("Authorization", "Bearer " + getTestToken());
+        setupOidcServer();
+        setupDiscovery("RS512", "ES256");
+        jwtValve.setDiscoveryUrl("http://localhost:" + mockServerRule.getPort() + "/realms/test");
+        jwtValve.initInternal();
+
+        jwtValve.invoke(request, response);
+
+        verify(response).sendError(401, "Algorithm 'RS256' not supported by issuer");
+        verifyOidcServerInvokedExactly(0);
+    }
+
+    @Test
+    public void shouldDiscoverIssuerWithTrailingSlash() throws Exception {
+        mockSecurityConstraints();
+        addHeader("Authorization", "Bearer " + getTestToken());
+        setupOidcServer();
+        setupDiscoveryOf("http://localhost:" + mockServerRule.getPort() + "/realms/test/", "RS256");
+        jwtValve.setDiscoveryUrl("http://localhost:" + mockServerRule.getPort() + "/realms/test/");
+        jwtValve.initInternal();
+
+        jwtValve.invoke(request, response);
+
+        verify(nextValve).invoke(request, response);
+        verifyOidcServerInvokedExactly(1);
+    }
+
+    @Test
+    public void shouldIgnoreDiscoveryOfAnotherIssuer() throws Exception {
+        mockSecurityConstraints();
+        addHeader("Authorization", "Bearer " + getTestToken());
+        setupOidcServer();
+        setupDiscoveryOf("https://idp.example.com/realms/test", "RS256");
+        jwtValve.setDiscoveryUrl("http://localhost:" + mockServerRule.getPort() + "/realms/test");
+        jwtValve.initInternal();
+
+        jwtValve.invoke(request, response);
+
+        verify(response).sendError(eq(401), anyString());
+        verify(nextValve, never()).invoke(request, response);
+        verifyOidcServerInvokedExactly(0);
+    }
+
+    @Test
+    public void shouldRouteTokenToItsIssuer() throws Exception {
+        mockSecurityConstraints();
+        addHeader("Authorization", "Bearer " + getTestToken("https://idp-a"));
+        setupOidcServer();
+        setupIssuersFile();
+        jwtValve.initInternal();
+
+        jwtValve.invoke(request, response);
+
+        InOrder inOrder = inOrder(request, nextValve);
+        inOrder.verify(request).setUserPrincipal(any(UserPrincipal.class));
+        inOrder.verify(nextValve).invoke(request, response);
+        verifyOidcServerInvokedExactly(1);
+        mockServerRule.getClient().verify(request().withPath("/other/certs"), VerificationTimes.exactly(0));
+    }
+
+    @Test
+    public void shouldApplyIssuerAudiences() throws Exception {
+        mockSecurityConstraints();
+        addHeader("Authorization", "Bearer " + getTestToken("https://idp-b"));
+        mockServerRule.getClient()
+                .when(request().withPath("/other/certs"))
+                .respond(response().withBody(Files.readAllBytes(Paths.get("target/test-classes/keys.json"))));
+        setupIssuersFile();
+        jwtValve.initInternal();
+
+        jwtValve.invoke(request, response);
+
+        verify(response).sendError(401, "Audience claim value 'app1' not supported");
+    }
+
+    @Test
+    public void shouldFailBecauseIssuerNotSupported() throws Exception {
+        mockSecurityConstraints();
+        addHeader("Authorization", "Bearer " + getTestToken("https://idp-c"));
+        setupOidcServer();
+        setupIssuersFile();
+        jwtValve.initInternal();
+
+        jwtValve.invoke(request, response);
+
+        verify(response).sendError(401, "Issuer claim value 'https://idp-c' not supported");
+        verifyOidcServerInvokedExactly(0);
+    }
+
     @Test
     public void shouldFailBecauseKeyNotFound() throws Exception {
         mockSecurityConstraints();
-        when(request.getHeader("Authorization")).thenReturn(
-                "Bearer " + getTestToken());
+        addHeader("Authorization", "Bearer " + getTestToken());
         jwtValve.initInternal();
 
         jwtValve.invoke(request, response);
 
-        verify(request).getHeader("Authorization");
         verify(response).sendError(401, "Failed to get key with kid jwt");
     }
 
@@ -200,31 +373,27 @@ public class OidcJwtTokenValveTest {
 
         jwtValve.invoke(request, response);
 
-        verify(request).getHeader("Authorization");
         verify(response).sendError(401, "Authorization token not provided");
     }
 
     @Test
     public void shouldFailAuthBecauseOfBearerValueNotSet() throws Exception {
         mockSecurityConstraints();
-        when(request.getHeader("Authorization")).thenReturn(
-                "Bearer ");
+        addHeader("Authorization", "Bearer ");
 
         jwtValve.invoke(request, response);
 
-        verify(request).getHeader("Authorization");
         verify(response).sendError(401, "Authorization token not provided");
     }
 
     @Test
     public void shouldFailAuthBecauseOfInvalidJwtToken() throws Exception {
         mockSecurityConstraints();
-        when(request.getHeader("Authorization")).thenReturn(
-                "Bearer invalidToken");
+        addHeader("Authorization", "Bearer invalidToken");
+        jwtValve.initInternal();
 
         jwtValve.invoke(request, response);
 
-        verify(request).getHeader("Authorization");
         verify(response).sendError(401, "The token was expected to have 3 parts, but got 1.");
     }
 
@@ -232,31 +401,46 @@ public class OidcJwtTokenValveTest {
     public void shouldFailAuthBecauseOfTokenExpired() throws Exception {
         mockSecurityConstraints();
         Date expiresAt = new Date(LocalDateTime.of(2019, 1, 1, 13, 21).toInstant(ZoneOffset.UTC).toEpochMilli());
-        when(request.getHeader("Authorization"))
-                .thenReturn("Bearer " + getTestToken(expiresAt));
+        addHeader("Authorization", "Bearer " + getTestToken(expiresAt));
         setupOidcServer();
         jwtValve.initInternal();
 
         jwtValve.invoke(request, response);
 
-        verify(request).getHeader("Authorization");
         verify(response).sendError(401, "The Token has expired on Tue Jan 01 13:21:00 UTC 2019.");
 
         verifyOidcServerInvokedExactly(1);
     }
 
+    @Test
+    public void shouldValidateTokenWithManyAudiences() throws Exception {
+        mockSecurityConstraints();
+        addHeader("Authorization", "Bearer " + JWT.create()
+                .withAudience("account", "app2")
+                .withClaim("preferred_username", "test")
+                .withArrayClaim("authorities", new String[]{"role1", "role2"})
+                .withExpiresAt(new Date(Instant.now().plusSeconds(10000).toEpochMilli()))
+                .sign(Algorithm.RSA256(KEY_PROVIDER)));
+        setupOidcServer();
+        jwtValve.setSupportedAudiences("app1, app2");
+        jwtValve.initInternal();
+
+        jwtValve.invoke(request, response);
+
+        verify(request).setUserPrincipal(any(UserPrincipal.class));
+        verify(nextValve).invoke(request, response);
+    }
+
     @Test
     public void shouldFailBecauseAudienceNotAllowed() throws Exception {
         mockSecurityConstraints();
-        when(request.getHeader("Authorization"))
-                .thenReturn("Bearer " + getTestToken());
+        addHeader("Authorization", "Bearer " + getTestToken());
         setupOidcServer();
         jwtValve.setSupportedAudiences("app3");
         jwtValve.initInternal();
 
         jwtValve.invoke(request, response);
 
-        verify(request).getHeader("Authorization");
         verify(response).sendError(401, "Audience claim value 'app1' not supported");
 
         verifyOidcServerInvokedExactly(1);
@@ -274,6 +458,39 @@ public class OidcJwtTokenValveTest {
                 );
     }
 
+    private void setupDiscovery(String... algorithms) {
+        setupDiscoveryOf("http://localhost:" + mockServerRule.getPort() + "/realms/test", algorithms);
+    }
+
+    private void setupDiscoveryOf(String issuer, String... algorithms) {
+        String baseUrl = "http://localhost:" + mockServerRule.getPort();
+        mockServerRule.getClient()
+                .when(
+                        request()
+                                .withPath("/realms/test/.well-known/openid-configuration")
+                )
+                .respond(
+                        response()
+                                .withBody("{\"issuer\": \"" + issuer + "\", "
+                                        + "\"jwks_uri\": \"" + baseUrl + OIDC_KEYS + "\", "
+                                        + "\"id_token_signing_alg_values_supported\": [\"" + String.join("\", \"", algorithms) + "\"]}")
+                );
+    }
+
+    private void setupIssuersFile() throws IOException {
+        String baseUrl = "http://localhost:" + mockServerRule.getPort();
+        File issuersFile = temporaryFolder.newFile("issuers.properties");
+        Files.write(issuersFile.toPath(), Arrays.asList(
+                "a.issuer=https://idp-a",
+                "a.jwksUri=" + baseUrl + OIDC_KEYS,
+                "a.supportedAudiences=app1, app2",
+                "b.issuer=https://idp-b",
+                "b.jwksUri=" + baseUrl + "/other/certs",
+                "b.supportedAudiences=app3"
+        ));
+        jwtValve.setIssuersFile(issuersFile.getAbsolutePath());
+    }
+
     private void verifyOidcServerInvokedExactly(int invocationTimes) {
         mockServerRule.getClient()
                 .verify(
@@ -294,6 +511,16 @@ public class OidcJwtTokenValveTest {
         return getTestToken(new Date(Instant.now().plusSeconds(10000).toEpochMilli()));
     }
 
+    private String getTestToken(String issuer) {
+        return JWT.create()
+                .withIssuer(issuer)
+                .withAudience("app1")
+                .withClaim("preferred_username", "test")
+                .withArrayClaim("authorities", new String[]{"role1", "role2"})
+                .withExpiresAt(new Date(Instant.now().plusSeconds(10000).toEpochMilli()))
+                .sign(Algorithm.RSA256(KEY_PROVIDER));
+    }
+
     private String getTestToken(Date expiresAt) {
         return JWT.create()
                 .withAudience("app1")
@@ -302,4 +529,9 @@ public class OidcJwtTokenValveTest {
                 .withExpiresAt(expiresAt)
                 .sign(Algorithm.RSA256(KEY_PROVIDER));
     }
-}
\ No newline at end of file
+
+    private void addHeader(String name, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.ISO_8859_1);
+        coyoteRequest.getMimeHeaders().addValue(name).setBytes(bytes, 0, bytes.length);
+    }
+}
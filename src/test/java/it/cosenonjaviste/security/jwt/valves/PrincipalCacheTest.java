@@ -0,0 +1,48 @@
+package it.cosenonjaviste.security.jwt.valves;
+
+import org.apache.catalina.realm.GenericPrincipal;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class PrincipalCacheTest {
+
+    @Test
+    public void shouldReuseSamePrincipal() {
+        PrincipalCache cache = new PrincipalCache(10);
+
+        GenericPrincipal first = cache.get("foo", Arrays.asList("role2", "role1"));
+        GenericPrincipal second = cache.get("foo", Arrays.asList("role2", "role1"));
+
+        assertSame(first, second);
+        assertEquals("foo", second.getName());
+        assertArrayEquals(new String[]{"role1", "role2"}, second.getRoles());
+    }
+
+    @Test
+    public void shouldNotReusePrincipalWithDifferentRoles() {
+        PrincipalCache cache = new PrincipalCache(10);
+
+        GenericPrincipal first = cache.get("foo", Collections.singletonList("role1"));
+        GenericPrincipal second = cache.get("foo", Arrays.asList("role1", "role2"));
+        GenericPrincipal third = cache.get("foo", null);
+
+        assertNotSame(first, second);
+        assertTrue(second.hasRole("role2"));
+        assertFalse(first.hasRole("role2"));
+        assertEquals(0, third.getRoles().length);
+    }
+
+    @Test
+    public void shouldInternRoles() {
+        PrincipalCache cache = new PrincipalCache(10);
+
+        GenericPrincipal foo = cache.get("foo", Collections.singletonList(new String("role1")));
+        GenericPrincipal bar = cache.get("bar", Collections.singletonList(new String("role1")));
+
+        assertSame(foo.getRoles()[0], bar.getRoles()[0]);
+    }
+}
@@ -19,8 +19,10 @@ import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
-import javax.servlet.http.Cookie;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.attribute.UserPrincipal;
+import java.security.KeyStore;
+import java.security.interfaces.RSAPrivateKey;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
@@ -28,6 +30,8 @@ import java.util.Date;
 import java.util.TimeZone;
 
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.startsWith;
 import static org.mockito.Mockito.*;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -53,6 +57,8 @@ public class RsaJwtTokenValveTest {
     @Mock
     private Request request;
 
+    private org.apache.coyote.Request coyoteRequest = new org.apache.coyote.Request();
+
     @Mock
     private Response response;
 
@@ -72,6 +78,7 @@ public class RsaJwtTokenValveTest {
 
         when(container.getRealm()).thenReturn(realm);
         when(request.getContext()).thenReturn(context);
+        when(request.getCoyoteRequest()).thenReturn(coyoteRequest);
 
         jwtValve.initInternal();
     }
@@ -98,13 +105,11 @@ public class RsaJwtTokenValveTest {
         securityConstraint.setAuthConstraint(true);
         when(realm.findSecurityConstraints(request, request.getContext()))
                 .thenReturn(new SecurityConstraint[] { securityConstraint });
-        when(request.getHeader(JwtConstants.AUTH_HEADER)).thenReturn(
-                getTestToken());
+        addHeader(JwtConstants.AUTH_HEADER, getTestToken());
 
         jwtValve.invoke(request, response);
 
         InOrder inOrder = inOrder(request, nextValve);
-        inOrder.verify(request).getHeader(JwtConstants.AUTH_HEADER);
         inOrder.verify(request).setUserPrincipal(any(UserPrincipal.class));
         inOrder.verify(request).setAuthType("TOKEN");
         inOrder.verify(nextValve).invoke(request, response);
@@ -119,13 +124,11 @@ public class RsaJwtTokenValveTest {
         securityConstraint.setAuthConstraint(true);
         when(realm.findSecurityConstraints(request, request.getContext()))
                 .thenReturn(new SecurityConstraint[] { securityConstraint });
-        when(request.getHeader("Authorization")).thenReturn(
-                "Bearer " + getTestToken());
+        addHeader("Authorization", "Bearer " + getTestToken());
 
         jwtValve.invoke(request, response);
 
         InOrder inOrder = inOrder(request, nextValve);
-        inOrder.verify(request).getHeader("Authorization");
         inOrder.verify(request).setUserPrincipal(any(UserPrincipal.class));
         inOrder.verify(request).setAuthType("TOKEN");
         inOrder.verify(nextValve).invoke(request, response);
@@ -140,13 +143,11 @@ public class RsaJwtTokenValveTest {
         securityConstraint.setAuthConstraint(true);
         when(realm.findSecurityConstraints(request, request.getContext()))
                 .thenReturn(new SecurityConstraint[] { securityConstraint });
-        when(request.getHeader("Authorization")).thenReturn(
-                "bearer " + getTestToken());
+        addHeader("Authorization", "bearer " + getTestToken());
 
         jwtValve.invoke(request, response);
 
         InOrder inOrder = inOrder(request, nextValve);
-        inOrder.verify(request).getHeader("Authorization");
         inOrder.verify(request).setUserPrincipal(any(UserPrincipal.class));
         inOrder.verify(request).setAuthType("TOKEN");
         inOrder.verify(nextValve).invoke(request, response);
@@ -161,13 +162,12 @@ public class RsaJwtTokenValveTest {
         securityConstraint.setAuthConstraint(true);
         when(realm.findSecurityConstraints(request, request.getContext()))
                 .thenReturn(new SecurityConstraint[] { securityConstraint });
-        when(request.getParameter(JwtConstants.AUTH_PARAM)).thenReturn(
-                getTestToken());
+        coyoteRequest.queryString().setString("lang=en&" + JwtConstants.AUTH_PARAM + "=" + getTestToken());
 
         jwtValve.invoke(request, response);
 
         InOrder inOrder = inOrder(request, nextValve);
-        inOrder.verify(request, times(2)).getParameter(JwtConstants.AUTH_PARAM);
+        verify(request, never()).getParameter(JwtConstants.AUTH_PARAM);
         inOrder.verify(request).setUserPrincipal(any(UserPrincipal.class));
         inOrder.verify(request).setAuthType("TOKEN");
         inOrder.verify(nextValve).invoke(request, response);
@@ -185,12 +185,12 @@ public class RsaJwtTokenValveTest {
             securityConstraint.setAuthConstraint(true);
             when(realm.findSecurityConstraints(request, request.getContext()))
                     .thenReturn(new SecurityConstraint[]{securityConstraint});
-            when(request.getCookies()).thenReturn(newCookies(cookieName));
+            addHeader("Cookie", "lang=en; " + cookieName + "=" + getTestToken());
 
             jwtValve.invoke(request, response);
 
             InOrder inOrder = inOrder(request, nextValve);
-            inOrder.verify(request).getParameter(JwtConstants.AUTH_PARAM);
+            verify(request, never()).getParameter(JwtConstants.AUTH_PARAM);
             inOrder.verify(request).setUserPrincipal(any(UserPrincipal.class));
             inOrder.verify(request).setAuthType("TOKEN");
             inOrder.verify(nextValve).invoke(request, response);
@@ -205,8 +205,7 @@ public class RsaJwtTokenValveTest {
         securityConstraint.setAuthConstraint(true);
         when(realm.findSecurityConstraints(request, request.getContext()))
                 .thenReturn(new SecurityConstraint[] { securityConstraint });
-        when(request.getHeader(JwtConstants.AUTH_HEADER)).thenReturn(
-                getTestToken());
+        addHeader(JwtConstants.AUTH_HEADER, getTestToken());
 
         RsaJwtTokenValve valve = new RsaJwtTokenValve();
         valve.setContainer(container);
@@ -217,7 +216,6 @@ public class RsaJwtTokenValveTest {
         valve.invoke(request, response);
 
         InOrder inOrder = inOrder(request, nextValve);
-        inOrder.verify(request).getHeader(JwtConstants.AUTH_HEADER);
         inOrder.verify(request).setUserPrincipal(any(UserPrincipal.class));
         inOrder.verify(request).setAuthType("TOKEN");
         inOrder.verify(nextValve).invoke(request, response);
@@ -229,12 +227,11 @@ public class RsaJwtTokenValveTest {
         securityConstraint.setAuthConstraint(true);
         when(realm.findSecurityConstraints(request, request.getContext()))
                 .thenReturn(new SecurityConstraint[]{securityConstraint});
-        when(request.getHeader(JwtConstants.AUTH_HEADER)).thenReturn(
-                JWT.create()
-                        .withSubject("test")
-                        .withArrayClaim("authorities", new String[]{"role1", "role2"})
-                        .withIssuedAt(new Date())
-                        .sign(Algorithm.RSA256(KEY_PROVIDER)));
+        addHeader(JwtConstants.AUTH_HEADER, JWT.create()
+                .withSubject("test")
+                .withArrayClaim("authorities", new String[]{"role1", "role2"})
+                .withIssuedAt(new Date())
+                .sign(Algorithm.RSA256(KEY_PROVIDER)));
 
         jwtValve.setCustomUserIdClaim("sub");
         jwtValve.setCustomRolesClaim("authorities");
@@ -242,7 +239,6 @@ public class RsaJwtTokenValveTest {
         jwtValve.invoke(request, response);
 
         InOrder inOrder = inOrder(request, nextValve);
-        inOrder.verify(request).getHeader(JwtConstants.AUTH_HEADER);
         inOrder.verify(request).setUserPrincipal(any(UserPrincipal.class));
         inOrder.verify(request).setAuthType("TOKEN");
         inOrder.verify(nextValve).invoke(request, response);
@@ -260,8 +256,7 @@ public class RsaJwtTokenValveTest {
 
         jwtValve.invoke(request, response);
 
-        verify(request).getHeader(JwtConstants.AUTH_HEADER);
-        verify(request).getParameter(JwtConstants.AUTH_PARAM);
+        verify(request, never()).getParameter(JwtConstants.AUTH_PARAM);
         verify(response).sendError(401, "Please login first");
     }
 
@@ -275,14 +270,46 @@ public class RsaJwtTokenValveTest {
         when(realm.findSecurityConstraints(request, request.getContext()))
                 .thenReturn(new SecurityConstraint[] { securityConstraint });
         Date expiresAt = new Date(LocalDateTime.of(2019, 1, 1, 13, 21).toInstant(ZoneOffset.UTC).toEpochMilli());
-        when(request.getHeader(JwtConstants.AUTH_HEADER)).thenReturn(getTestToken(expiresAt));
+        addHeader(JwtConstants.AUTH_HEADER, getTestToken(expiresAt));
 
         jwtValve.invoke(request, response);
 
-        verify(request).getHeader(JwtConstants.AUTH_HEADER);
         verify(response).sendError(401, "Token not valid. Cause: The Token has expired on Tue Jan 01 13:21:00 UTC 2019.");
     }
 
+    @Test
+    public void shouldFailAuthBecauseOfUntrustedKid() throws Exception {
+        SecurityConstraint securityConstraint = new SecurityConstraint();
+        securityConstraint.setAuthConstraint(true);
+        when(realm.findSecurityConstraints(request, request.getContext()))
+                .thenReturn(new SecurityConstraint[] { securityConstraint });
+        addHeader(JwtConstants.AUTH_HEADER, getPartnerToken());
+
+        RsaJwtTokenValve valve = newTrustedKeystoreValve();
+        valve.initInternal();
+        valve.invoke(request, response);
+
+        verify(response).sendError(eq(401), startsWith("Token not valid. Cause: The Token's Signature resulted invalid"));
+        verify(nextValve, never()).invoke(request, response);
+    }
+
+    @Test
+    public void shouldPassAuthWithTrustedAlias() throws Exception {
+        SecurityConstraint securityConstraint = new SecurityConstraint();
+        securityConstraint.setAuthConstraint(true);
+        when(realm.findSecurityConstraints(request, request.getContext()))
+                .thenReturn(new SecurityConstraint[] { securityConstraint });
+        addHeader(JwtConstants.AUTH_HEADER, getPartnerToken());
+
+        RsaJwtTokenValve valve = newTrustedKeystoreValve();
+        valve.setTrustedAliases(KeyStores.PARTNER_KEY_ID);
+        valve.initInternal();
+        valve.invoke(request, response);
+
+        verify(request).setUserPrincipal(any(UserPrincipal.class));
+        verify(nextValve).invoke(request, response);
+    }
+
     /**
      * @throws Exception
      */
@@ -332,6 +359,26 @@ public class RsaJwtTokenValveTest {
         valve.initInternal();
     }
 
+    private RsaJwtTokenValve newTrustedKeystoreValve() {
+        RsaJwtTokenValve valve = new RsaJwtTokenValve();
+        valve.setContainer(container);
+        valve.setNext(nextValve);
+        valve.setKeystorePath("target/test-classes/" + KeyStores.TRUSTED_KEYSTORE);
+        valve.setKeystorePassword(KeyStores.KEYSTORE_PASSWORD);
+        valve.setKeyPairsAlias(KeyStores.KEY_ID);
+        return valve;
+    }
+
+    private String getPartnerToken() throws Exception {
+        KeyStore keyStore = KeyStores.get(KeyStores.PARTNER_KEYSTORE);
+        RSAPrivateKey privateKey = (RSAPrivateKey) keyStore.getKey(KeyStores.PARTNER_KEY_ID, KeyStores.KEYSTORE_PASSWORD.toCharArray());
+        return JWT.create()
+                .withKeyId(KeyStores.PARTNER_KEY_ID)
+                .withClaim(JwtConstants.USER_ID, "test")
+                .withArrayClaim(JwtConstants.ROLES, new String[]{"role1", "role2"})
+                .sign(Algorithm.RSA256(null, privateKey));
+    }
+
     private String getTestToken() {
         return getTestToken(new Date(Instant.now().plusSeconds(10000).toEpochMilli()));
     }
@@ -344,8 +391,8 @@ public class RsaJwtTokenValveTest {
                 .sign(Algorithm.RSA256(KEY_PROVIDER));
     }
 
-    private Cookie[] newCookies(String cookieName) {
-        return new Cookie[] {new Cookie(cookieName, getTestToken())};
+    private void addHeader(String name, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.ISO_8859_1);
+        coyoteRequest.getMimeHeaders().addValue(name).setBytes(bytes, 0, bytes.length);
     }
-
-}
\ No newline at end of file
+}
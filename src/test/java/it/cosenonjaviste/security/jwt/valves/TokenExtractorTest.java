@@ -0,0 +1,49 @@
+package it.cosenonjaviste.security.jwt.valves;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class TokenExtractorTest {
+
+    @Test
+    public void shouldExtractBearerToken() {
+        assertEquals("abc.def.ghi", TokenExtractor.bearer("Bearer abc.def.ghi"));
+        assertEquals("abc.def.ghi", TokenExtractor.bearer("bEaReR   abc.def.ghi "));
+    }
+
+    @Test
+    public void shouldIgnoreOtherSchemes() {
+        assertNull(TokenExtractor.bearer("Basic dXNlcjpwYXNz"));
+        assertNull(TokenExtractor.bearer("Bearerabc.def.ghi"));
+        assertNull(TokenExtractor.bearer("Bearer "));
+        assertNull(TokenExtractor.bearer("Bear"));
+    }
+
+    @Test
+    public void shouldExtractCookie() {
+        assertEquals("abc.def.ghi", TokenExtractor.cookie("auth_token=abc.def.ghi", "auth_token"));
+        assertEquals("abc.def.ghi", TokenExtractor.cookie("lang=en; AUTH_TOKEN = \"abc.def.ghi\"; theme=dark", "auth_token"));
+    }
+
+    @Test
+    public void shouldNotMatchCookieNamePrefix() {
+        assertNull(TokenExtractor.cookie("auth_token_old=abc; lang=en", "auth_token"));
+        assertNull(TokenExtractor.cookie("", "auth_token"));
+    }
+
+    @Test
+    public void shouldExtractQueryParameter() {
+        assertEquals("abc.def.ghi", TokenExtractor.query("access_token=abc.def.ghi", "access_token"));
+        assertEquals("abc.def ghi", TokenExtractor.query("lang=en&access_token=abc.def%20ghi&x=y", "access_token"));
+        assertEquals("abc.def.ghi", TokenExtractor.query("access_token=&access_token=abc.def.ghi", "access_token"));
+    }
+
+    @Test
+    public void shouldNotMatchOtherQueryParameters() {
+        assertNull(TokenExtractor.query("my_access_token=abc&access_token_old=def", "access_token"));
+        assertNull(TokenExtractor.query("access_token=&lang=en", "access_token"));
+        assertNull(TokenExtractor.query("access_token", "access_token"));
+    }
+}
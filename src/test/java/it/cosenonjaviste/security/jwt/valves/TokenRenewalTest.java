@@ -0,0 +1,77 @@
+package it.cosenonjaviste.security.jwt.valves;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTCreator;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import it.cosenonjaviste.security.jwt.model.JwtAdapter;
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class TokenRenewalTest {
+
+    private static final Algorithm ALGORITHM = Algorithm.HMAC256("a secret");
+
+    private final AtomicInteger renewals = new AtomicInteger();
+
+    @Test
+    public void shouldRenewOnEachRequestWithoutThreshold() {
+        TokenRenewal renewal = new TokenRenewal(0, 0, 10, this::renew);
+        JwtAdapter jwt = jwt(token().withExpiresAt(inSeconds(3600)));
+
+        assertEquals("renewed-1", renewal.renew(jwt));
+        assertEquals("renewed-2", renewal.renew(jwt));
+    }
+
+    @Test
+    public void shouldNotRenewBeforeThreshold() {
+        TokenRenewal renewal = new TokenRenewal(60_000, 0, 10, this::renew);
+
+        assertNull(renewal.renew(jwt(token().withExpiresAt(inSeconds(3600)))));
+        assertNull(renewal.renew(jwt(token())));
+        assertEquals(0, renewals.get());
+    }
+
+    @Test
+    public void shouldReuseRenewedTokenWithinThreshold() {
+        TokenRenewal renewal = new TokenRenewal(60_000, 0, 10, this::renew);
+        JwtAdapter jwt = jwt(token().withExpiresAt(inSeconds(30)));
+
+        assertEquals("renewed-1", renewal.renew(jwt));
+        assertEquals("renewed-1", renewal.renew(jwt(token().withExpiresAt(jwt.getDecodedJWT().getExpiresAt()))));
+        assertEquals(1, renewals.get());
+    }
+
+    @Test
+    public void shouldRenewBelowLifetimeRatio() {
+        TokenRenewal renewal = new TokenRenewal(0, 0.5, 0, this::renew);
+        long now = System.currentTimeMillis();
+
+        assertFalse(renewal.needsRenewal(decoded(now - 10_000, now + 90_000), now));
+        assertTrue(renewal.needsRenewal(decoded(now - 60_000, now + 40_000), now));
+    }
+
+    private String renew(JwtAdapter jwt) {
+        return "renewed-" + renewals.incrementAndGet();
+    }
+
+    private static JWTCreator.Builder token() {
+        return JWT.create().withClaim("userId", "foo");
+    }
+
+    private static DecodedJWT decoded(long issuedAt, long expiresAt) {
+        return JWT.decode(token().withIssuedAt(new Date(issuedAt)).withExpiresAt(new Date(expiresAt)).sign(ALGORITHM));
+    }
+
+    private static JwtAdapter jwt(JWTCreator.Builder builder) {
+        return new JwtAdapter(ALGORITHM, JWT.decode(builder.sign(ALGORITHM)));
+    }
+
+    private static Date inSeconds(int seconds) {
+        return new Date(System.currentTimeMillis() + seconds * 1000L);
+    }
+}